@@ -0,0 +1,177 @@
+package com.chequepay.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed NDJSON files holding audit records that have aged out of the database, one file per day.
+ * <p>
+ * Files are named {@code audit_logs_<yyyyMMdd>[.<n>].ndjson.gz}; a day archived in several runs gets several
+ * files. A file is written under a temporary name, forced to disk and only then moved into place, and the move is
+ * forced as well. So neither a reader nor a crash ever sees a partial archive, and once {@link Writer#commit()}
+ * returns the records can safely be removed from the database. Reads stream line by line and skip files whose day
+ * falls outside the requested range.
+ */
+@Component
+public class AuditArchive {
+
+    private static final String PREFIX = "audit_logs_";
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    public AuditArchive(ObjectMapper objectMapper,
+                        @Value("${audit.archive.dir:logs/audit-archive}") String directory) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+    }
+
+    /**
+     * Starts a new archive file for {@code day}. Records written to it become visible when {@link Writer#commit()}
+     * is called; closing an uncommitted writer discards them.
+     */
+    public Writer open(LocalDate day) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(PREFIX + DAY.format(day) + SUFFIX);
+        for (int n = 1; Files.exists(target); n++) {
+            target = directory.resolve(PREFIX + DAY.format(day) + "." + n + SUFFIX);
+        }
+        return new Writer(target);
+    }
+
+    /**
+     * Passes every archived record that matches {@code filter} to {@code sink}, oldest day first, and returns how
+     * many were passed.
+     */
+    public long read(AuditQueryService.Filter filter, Consumer<AuditLog> sink) throws IOException {
+        long sent = 0;
+        for (Path file : files()) {
+            LocalDate day = dayOf(file);
+            if ((filter.from() != null && day.isBefore(filter.from().toLocalDate()))
+                    || (filter.to() != null && !day.atStartOfDay().isBefore(filter.to()))) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    AuditLog record = objectMapper.readValue(line, AuditLog.class);
+                    if (filter.matches(record)) {
+                        sink.accept(record);
+                        sent++;
+                    }
+                }
+            }
+        }
+        return sent;
+    }
+
+    public List<Path> files() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Forces the directory entry changes of {@code directory}, such as a rename into it, to disk.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows cannot open a directory for syncing; there the rename is as durable as the platform allows.
+        }
+    }
+
+    private static LocalDate dayOf(Path file) {
+        String name = file.getFileName().toString();
+        return LocalDate.parse(name.substring(PREFIX.length(), PREFIX.length() + 8), DAY);
+    }
+
+    public class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final GZIPOutputStream gzip;
+        private final BufferedWriter out;
+        private long count;
+        private boolean committed;
+
+        private Writer(Path target) throws IOException {
+            this.target = target;
+            this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            this.out = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+        }
+
+        public void write(AuditLog record) throws IOException {
+            out.write(objectMapper.writeValueAsString(record));
+            out.newLine();
+            count++;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Makes the file durable and visible under its final name.
+         */
+        public Path commit() throws IOException {
+            out.flush();
+            gzip.finish();
+            channel.force(true);
+            out.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(directory);
+            committed = true;
+            return target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
 
 @Aspect
@@ -18,25 +20,32 @@ public class AuditAspect {
 
     @AfterReturning(value = "execution(* com.chequepay.controller..*(..))", returning = "result")
     public void logSuccess(JoinPoint joinPoint, Object result) {
-        String username = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "ANONYMOUS";
-        auditService.recordEvent(
-                "API_CALL",
-                username,
-                joinPoint.getSignature().toShortString() + " -> " + result,
-                request.getRemoteAddr(),
-                "SUCCESS"
-        );
+        auditService.record(event(joinPoint, "SUCCESS").result(result).build());
     }
 
     @AfterThrowing(value = "execution(* com.chequepay.controller..*(..))", throwing = "ex")
     public void logFailure(JoinPoint joinPoint, Throwable ex) {
+        auditService.record(event(joinPoint, "FAILURE").message(String.valueOf(ex.getMessage())).build());
+    }
+
+    private AuditEvent.AuditEventBuilder event(JoinPoint joinPoint, String status) {
         String username = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "ANONYMOUS";
-        auditService.recordEvent(
-                "API_CALL",
-                username,
-                joinPoint.getSignature().toShortString() + " -> " + ex.getMessage(),
-                request.getRemoteAddr(),
-                "FAILURE"
-        );
+        return AuditEvent.builder()
+                .eventType("API_CALL")
+                .username(username)
+                .action(joinPoint.getSignature().toShortString())
+                .httpMethod(request.getMethod())
+                .path(request.getRequestURI())
+                .ipAddress(request.getRemoteAddr())
+                .status(status)
+                .policy(policyOf(joinPoint));
+    }
+
+    private static AuditCapture.Policy policyOf(JoinPoint joinPoint) {
+        if (joinPoint.getSignature() instanceof MethodSignature signature && signature.getMethod() != null) {
+            AuditCapture capture = AnnotationUtils.findAnnotation(signature.getMethod(), AuditCapture.class);
+            return capture != null ? capture.value() : null;
+        }
+        return null;
     }
 }
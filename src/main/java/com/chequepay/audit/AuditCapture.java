@@ -0,0 +1,26 @@
+package com.chequepay.audit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Chooses how much of a controller method's result goes into its audit record. Methods without it use
+ * {@code audit.capture.default}. Failures are always recorded with the exception message.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AuditCapture {
+
+    Policy value();
+
+    enum Policy {
+        /** Record nothing for successful calls. */
+        SKIP,
+        /** Record the response status and the shape of the body: types, sizes and map keys, no content. */
+        SUMMARY,
+        /** Record the body as masked JSON, truncated to {@code audit.capture.max-detail-chars}. */
+        FULL
+    }
+}
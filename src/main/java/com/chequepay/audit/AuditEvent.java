@@ -0,0 +1,27 @@
+package com.chequepay.audit;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * One audited controller call. The result is kept as the object the controller returned and is only turned into
+ * text, according to {@link #getPolicy()}, when the record is written.
+ */
+@Getter
+@Builder
+public class AuditEvent {
+
+    private final String eventType;
+    private final String username;
+    private final String action;
+    private final String httpMethod;
+    private final String path;
+    private final String ipAddress;
+    private final String status;
+
+    /** Capture policy declared on the endpoint, or null for the configured default. */
+    private final AuditCapture.Policy policy;
+
+    private final Object result;
+    private final String message;
+}
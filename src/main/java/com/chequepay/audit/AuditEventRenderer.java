@@ -0,0 +1,182 @@
+package com.chequepay.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether an {@link AuditEvent} is recorded and turns its result into the details text.
+ * <p>
+ * {@code SUMMARY} describes the result without its content, for example {@code 200 Map{success=true, qrCode}}:
+ * a few dozen characters where the full body could be a Base64 image. {@code FULL} serializes the body as JSON,
+ * so that {@link MaskingUtil} can find sensitive fields. Serialization stops once {@code max-detail-chars} have
+ * been produced, so a large body is never rendered in full just to be cut. Successful GET requests are recorded
+ * at {@code get-sample-rate}.
+ */
+@Component
+public class AuditEventRenderer {
+
+    static final String TRUNCATED = "...[truncated]";
+
+    private static final int MAX_SUMMARY_KEYS = 10;
+
+    private final ObjectMapper objectMapper;
+    private final AuditCapture.Policy defaultPolicy;
+    private final int maxDetailChars;
+    private final double getSampleRate;
+
+    public AuditEventRenderer(ObjectMapper objectMapper,
+                              @Value("${audit.capture.default:summary}") String defaultPolicy,
+                              @Value("${audit.capture.max-detail-chars:1024}") int maxDetailChars,
+                              @Value("${audit.capture.get-sample-rate:0.01}") double getSampleRate) {
+        this.objectMapper = objectMapper;
+        this.defaultPolicy = AuditCapture.Policy.valueOf(defaultPolicy.trim().toUpperCase());
+        this.maxDetailChars = maxDetailChars;
+        this.getSampleRate = getSampleRate;
+    }
+
+    public AuditCapture.Policy policyOf(AuditEvent event) {
+        return event.getPolicy() != null ? event.getPolicy() : defaultPolicy;
+    }
+
+    public boolean shouldRecord(AuditEvent event) {
+        if (event.getMessage() != null) {
+            return true;
+        }
+        if (policyOf(event) == AuditCapture.Policy.SKIP) {
+            return false;
+        }
+        return !isSampled(event) || ThreadLocalRandom.current().nextDouble() < getSampleRate;
+    }
+
+    /**
+     * Renders the details of the event, before masking. The text may exceed the cap by a few characters;
+     * {@link #cap(String)} applies the final limit after masking.
+     */
+    public String render(AuditEvent event) {
+        if (event.getMessage() != null) {
+            return event.getMessage();
+        }
+        String details = policyOf(event) == AuditCapture.Policy.FULL ? full(event.getResult()) : summary(event.getResult());
+        return isSampled(event) ? details + " (sampled at " + getSampleRate + ")" : details;
+    }
+
+    public String cap(String details) {
+        if (details == null || details.length() <= maxDetailChars) {
+            return details;
+        }
+        return details.substring(0, maxDetailChars) + TRUNCATED;
+    }
+
+    private boolean isSampled(AuditEvent event) {
+        return "GET".equalsIgnoreCase(event.getHttpMethod()) && getSampleRate < 1.0;
+    }
+
+    private String full(Object result) {
+        if (result instanceof ResponseEntity<?> response) {
+            return response.getStatusCode().value() + " " + json(response.getBody());
+        }
+        return json(result);
+    }
+
+    private String json(Object body) {
+        if (body == null) {
+            return "null";
+        }
+        if (body instanceof CharSequence text) {
+            return text.length() <= maxDetailChars ? text.toString() : text.subSequence(0, maxDetailChars) + TRUNCATED;
+        }
+        CappedWriter writer = new CappedWriter(maxDetailChars);
+        try {
+            objectMapper.writeValue(writer, body);
+            return writer.toString();
+        } catch (IOException | RuntimeException e) {
+            // Jackson may wrap the writer's exception, so the writer itself says whether the cap was reached.
+            return writer.capped ? writer + TRUNCATED : summary(body);
+        }
+    }
+
+    static String summary(Object result) {
+        if (result instanceof ResponseEntity<?> response) {
+            return response.getStatusCode().value() + " " + summary(response.getBody());
+        }
+        if (result == null) {
+            return "null";
+        }
+        if (result instanceof Boolean || result instanceof Number || result instanceof Enum<?>) {
+            return result.toString();
+        }
+        if (result instanceof CharSequence text) {
+            return "String[" + text.length() + "]";
+        }
+        if (result instanceof byte[] bytes) {
+            return "byte[" + bytes.length + "]";
+        }
+        if (result instanceof Collection<?> collection) {
+            return result.getClass().getSimpleName() + "[" + collection.size() + "]";
+        }
+        if (result instanceof Map<?, ?> map) {
+            StringBuilder summary = new StringBuilder("Map{");
+            Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+            for (int i = 0; entries.hasNext() && i < MAX_SUMMARY_KEYS; i++) {
+                Map.Entry<?, ?> entry = entries.next();
+                if (i > 0) {
+                    summary.append(", ");
+                }
+                summary.append(entry.getKey());
+                Object value = entry.getValue();
+                if (value instanceof Boolean || value instanceof Number || value instanceof Enum<?>) {
+                    summary.append('=').append(value);
+                }
+            }
+            if (map.size() > MAX_SUMMARY_KEYS) {
+                summary.append(", +").append(map.size() - MAX_SUMMARY_KEYS);
+            }
+            return summary.append('}').toString();
+        }
+        return result.getClass().getSimpleName();
+    }
+
+    /** Collects at most {@code limit} characters and then aborts the serialization writing into it. */
+    private static final class CappedWriter extends Writer {
+
+        private final StringBuilder out = new StringBuilder();
+        private final int limit;
+        private boolean capped;
+
+        CappedWriter(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int room = limit - out.length();
+            out.append(buffer, offset, Math.min(room, length));
+            if (length > room) {
+                capped = true;
+                throw new IOException("Audit detail limit reached");
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.chequepay.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit journal on memory-mapped segment files, used when {@code audit.mode=journal}.
+ * <p>
+ * Appending a record serializes it on the caller's thread and copies the bytes into the active segment under a
+ * short lock, so request threads never wait for the database. Each record is framed as {@code [length][crc][json]};
+ * a zero length marks the end of the written part, since new segments are zero-filled. Once written the bytes
+ * survive a process crash; {@code audit.journal.fsync-ms} sets how often they are forced to disk, which bounds
+ * what an operating system crash can lose (0 forces on every append).
+ * <p>
+ * A segment is sealed when the next record does not fit or it has been open for {@code max-segment-age-ms}. A
+ * background loader writes sealed segments into {@code audit_logs} in batches and deletes them, recording its
+ * progress in a {@link Checkpoint} so that a crash during loading repeats at most one batch. Segments left
+ * active by a crashed process are sealed at startup and loaded like any other.
+ */
+@Slf4j
+@Component
+public class AuditJournal {
+
+    private static final String ACTIVE_SUFFIX = ".seg";
+    private static final String SEALED_SUFFIX = ".sealed";
+    private static final int HEADER_BYTES = 8;
+
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long fsyncMillis;
+    private final long maxSegmentAgeMillis;
+    private final long loadIntervalMillis;
+    private final int loadBatchSize;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private Path activePath;
+    private long activeSequence;
+    private long activeOpenedAt;
+    private volatile boolean dirty;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder loaded = new LongAdder();
+
+    public AuditJournal(AuditLogRepository auditLogRepository,
+                        ObjectMapper objectMapper,
+                        @Value("${audit.mode:async}") String mode,
+                        @Value("${audit.journal.dir:logs/audit-journal}") String directory,
+                        @Value("${audit.journal.segment-bytes:67108864}") int segmentBytes,
+                        @Value("${audit.journal.fsync-ms:100}") long fsyncMillis,
+                        @Value("${audit.journal.max-segment-age-ms:60000}") long maxSegmentAgeMillis,
+                        @Value("${audit.journal.load-interval-ms:1000}") long loadIntervalMillis,
+                        @Value("${audit.journal.load-batch-size:1000}") int loadBatchSize) {
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = "journal".equalsIgnoreCase(mode.trim());
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.fsyncMillis = fsyncMillis;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.loadIntervalMillis = loadIntervalMillis;
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Seals segments left behind by a previous run, opens a fresh one and starts the fsync and loader threads.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long lastSequence = 0;
+        for (Path orphan : list(ACTIVE_SUFFIX)) {
+            lastSequence = Math.max(lastSequence, sequenceOf(orphan));
+            Files.move(orphan, sealedPath(orphan), StandardCopyOption.ATOMIC_MOVE);
+            log.warn("Recovered audit journal segment {} from an unclean shutdown", orphan.getFileName());
+        }
+        for (Path sealed : list(SEALED_SUFFIX)) {
+            lastSequence = Math.max(lastSequence, sequenceOf(sealed));
+        }
+        appendLock.lock();
+        try {
+            activeSequence = lastSequence;
+            openSegment();
+        } finally {
+            appendLock.unlock();
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audit-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::force, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::sealIfStaleAndLoad, 0, loadIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends the record to the active segment. Throws {@link IllegalStateException} when the journal is not
+     * open, or {@link UncheckedIOException} when a new segment cannot be created; the caller should then write the
+     * record some other way.
+     */
+    public void append(AuditLog record) {
+        record.resolveDetails();
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int frameBytes = HEADER_BYTES + payload.length;
+        if (frameBytes + Integer.BYTES > segmentBytes) {
+            throw new IllegalStateException("Audit record of " + payload.length + " bytes exceeds the journal segment size");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            if (active == null) {
+                throw new IllegalStateException("Audit journal is not open");
+            }
+            if (active.remaining() < frameBytes + Integer.BYTES) {
+                rollSegment();
+            }
+            int position = active.position();
+            active.position(position + Integer.BYTES);
+            active.putInt((int) crc.getValue());
+            active.put(payload);
+            // The length goes in last, so a reader never sees a frame whose payload is only partly written.
+            active.putInt(position, payload.length);
+            dirty = true;
+            if (fsyncMillis <= 0) {
+                active.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        appended.increment();
+    }
+
+    /**
+     * Loads every sealed segment in the journal directory into the database now, including segments copied in
+     * from elsewhere, and returns how many records were written.
+     */
+    public long replay() {
+        loadLock.lock();
+        try {
+            long before = loaded.sum();
+            for (Path segment : list(SEALED_SUFFIX)) {
+                loadSegment(segment);
+            }
+            return loaded.sum() - before;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        int pending;
+        try {
+            pending = list(SEALED_SUFFIX).size();
+        } catch (IOException e) {
+            pending = -1;
+        }
+        return new Stats(appended.sum(), loaded.sum(), pending);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        appendLock.lock();
+        try {
+            sealActive();
+        } catch (IOException e) {
+            log.warn("Failed to seal the active audit journal segment, it will be recovered at startup", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records of one segment in order, stopping at the first empty or damaged frame. The consumer receives
+     * each record with the offset just past it; the method returns the offset just past the last record read.
+     */
+    public static long readSegment(Path segment, long fromOffset, ObjectMapper objectMapper,
+                                   ObjLongConsumer<AuditLog> consumer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.position((int) fromOffset);
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    return start;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Audit journal segment {} is damaged at offset {}, ignoring the rest", segment.getFileName(), start);
+                    return start;
+                }
+                consumer.accept(objectMapper.readValue(payload, AuditLog.class), buffer.position());
+            }
+            return buffer.position();
+        }
+    }
+
+    private void sealIfStaleAndLoad() {
+        appendLock.lock();
+        try {
+            if (active != null && active.position() > 0
+                    && System.currentTimeMillis() - activeOpenedAt >= maxSegmentAgeMillis) {
+                rollSegment();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to seal the active audit journal segment", e);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            replay();
+        } catch (RuntimeException e) {
+            log.error("Failed to load audit journal segments, will retry", e);
+        }
+    }
+
+    private void loadSegment(Path segment) throws IOException {
+        Checkpoint checkpoint = new Checkpoint(segment);
+        long offset = checkpoint.read();
+
+        List<AuditLog> batch = new ArrayList<>(loadBatchSize);
+        long end = readSegment(segment, offset, objectMapper, (record, next) -> {
+            batch.add(record);
+            if (batch.size() == loadBatchSize) {
+                save(batch);
+                try {
+                    checkpoint.write(next);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            save(batch);
+        }
+        Files.delete(segment);
+        checkpoint.delete();
+        log.info("Loaded audit journal segment {} ({} bytes)", segment.getFileName(), end);
+    }
+
+    private void save(List<AuditLog> batch) {
+        auditLogRepository.saveAll(batch);
+        loaded.add(batch.size());
+        batch.clear();
+    }
+
+    private void force() {
+        if (!dirty) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.force();
+                dirty = false;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Caller holds {@link #appendLock}. */
+    private void rollSegment() throws IOException {
+        sealActive();
+        openSegment();
+    }
+
+    /** Caller holds {@link #appendLock}. */
+    private void openSegment() throws IOException {
+        activeSequence++;
+        activePath = directory.resolve(String.format("audit-%016d%s", activeSequence, ACTIVE_SUFFIX));
+        try (RandomAccessFile file = new RandomAccessFile(activePath.toFile(), "rw")) {
+            file.setLength(segmentBytes);
+        }
+        activeChannel = FileChannel.open(activePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        activeOpenedAt = System.currentTimeMillis();
+    }
+
+    /** Caller holds {@link #appendLock}. */
+    private void sealActive() throws IOException {
+        if (active == null) {
+            return;
+        }
+        boolean empty = active.position() == 0;
+        active.force();
+        activeChannel.close();
+        active = null;
+        dirty = false;
+        if (empty) {
+            Files.deleteIfExists(activePath);
+        } else {
+            Files.move(activePath, sealedPath(activePath), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "audit-*" + suffix)) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static Path sealedPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - ACTIVE_SUFFIX.length()) + SEALED_SUFFIX);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("audit-".length(), name.indexOf('.')));
+    }
+
+    /**
+     * @param appended records appended since startup
+     * @param loaded   records loaded into the database since startup
+     * @param pending  sealed segments waiting for the loader
+     */
+    public record Stats(long appended, long loaded, int pending) {
+    }
+}
@@ -1,13 +1,21 @@
 package com.chequepay.audit;
 
+import com.chequepay.entity.UuidV7Id;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        @Index(name = "idx_audit_logs_username_time", columnList = "username, timestamp, id"),
+        @Index(name = "idx_audit_logs_event_type_time", columnList = "event_type, timestamp, id"),
+        @Index(name = "idx_audit_logs_status_time", columnList = "status, timestamp, id"),
+        @Index(name = "idx_audit_logs_time", columnList = "timestamp, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,11 +23,14 @@ import java.util.UUID;
 public class AuditLog {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     private String eventType;
     private String username;
+    private String action;
+    private String httpMethod;
+    private String path;
 
     @Column(columnDefinition = "TEXT")
     private String details;
@@ -27,4 +38,29 @@ public class AuditLog {
     private LocalDateTime timestamp;
     private String ipAddress;
     private String status;
+
+    /** Produces {@link #details} when the record is written, so rendering stays off the request thread. */
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Supplier<String> pendingDetails;
+
+    /**
+     * Renders deferred details, if any. Runs before the insert, and must be called before serializing the record
+     * any other way.
+     */
+    @PrePersist
+    public void resolveDetails() {
+        Supplier<String> pending = pendingDetails;
+        if (pending == null) {
+            return;
+        }
+        pendingDetails = null;
+        try {
+            details = pending.get();
+        } catch (RuntimeException e) {
+            details = "Failed to render audit details: " + e.getClass().getSimpleName();
+        }
+    }
 }
@@ -0,0 +1,355 @@
+package com.chequepay.audit;
+
+import com.chequepay.util.MpscRingBuffer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes audit records off the request thread and writes them to the database in batches.
+ * <p>
+ * Request threads publish records into a bounded lock-free ring. A single writer thread drains it and saves a
+ * batch once it holds {@code batch-size} records or its oldest record is {@code flush-ms} old; with Hibernate
+ * JDBC batching each flush is one round trip per few hundred rows. When the ring is full the overflow policy
+ * decides:
+ * <ul>
+ *     <li>{@code BLOCK} waits for room, pushing back on the caller;</li>
+ *     <li>{@code DROP} discards the record and counts it;</li>
+ *     <li>{@code SPILL} appends it to an NDJSON file, which the writer loads into the database once it is idle
+ *     and again at the next startup. Loading records a {@link Checkpoint} after every batch, so a failure part
+ *     way through resumes after the last saved batch instead of saving the earlier ones twice.</li>
+ * </ul>
+ * On shutdown the writer drains everything still queued before the application context closes. A record
+ * published while shutdown is under way is drained by its producer once the writer has stopped.
+ */
+@Slf4j
+@Component
+public class AuditPipeline {
+
+    public enum Mode { SYNC, ASYNC, JOURNAL }
+
+    public enum OverflowPolicy { BLOCK, DROP, SPILL }
+
+    private static final String SPILL_FILE = "audit-spill.ndjson";
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+    private final Mode mode;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushNanos;
+    private final long drainTimeoutMillis;
+    private final Path spillDirectory;
+
+    private final MpscRingBuffer<AuditLog> ring;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private BufferedWriter spillWriter;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public AuditPipeline(AuditLogRepository auditLogRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${audit.mode:async}") String mode,
+                         @Value("${audit.async.capacity:65536}") int capacity,
+                         @Value("${audit.async.batch-size:500}") int batchSize,
+                         @Value("${audit.async.flush-ms:200}") long flushMillis,
+                         @Value("${audit.async.overflow:block}") String overflowPolicy,
+                         @Value("${audit.async.spill-dir:logs/audit-spill}") String spillDirectory,
+                         @Value("${audit.async.drain-timeout-ms:10000}") long drainTimeoutMillis) {
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.spillDirectory = Path.of(spillDirectory);
+        this.ring = new MpscRingBuffer<>(capacity);
+
+        if (this.mode == Mode.ASYNC) {
+            this.writer = new Thread(this::runWriter, "audit-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    public boolean isAsync() {
+        return mode == Mode.ASYNC;
+    }
+
+    /**
+     * Queues the record for the writer. Returns without touching the database unless the pipeline has already
+     * shut down, in which case the record is saved directly.
+     */
+    public void submit(AuditLog record) {
+        if (!running || writer == null) {
+            saveDirectly(record);
+            return;
+        }
+        if (ring.offer(record)) {
+            if (!running) {
+                // Shutdown began after the check above, so the writer may have made its last pass already.
+                drainAfterWriter();
+            } else if (ring.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP -> dropped.increment();
+            case SPILL -> spill(record);
+            case BLOCK -> {
+                LockSupport.unpark(writer);
+                while (!ring.offer(record)) {
+                    if (!running) {
+                        saveDirectly(record);
+                        return;
+                    }
+                    LockSupport.parkNanos(100_000);
+                }
+                if (!running) {
+                    drainAfterWriter();
+                }
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(ring.size(), written.sum(), dropped.sum(), spilled.sum(), failed.sum());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        if (overflowPolicy == OverflowPolicy.SPILL && writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        writer.join(drainTimeoutMillis);
+        if (writer.isAlive()) {
+            log.warn("Audit writer did not drain within {} ms, {} records left unwritten", drainTimeoutMillis, ring.size());
+        }
+        drainAfterWriter();
+        closeSpillWriter();
+    }
+
+    /**
+     * Waits for the writer to stop and saves whatever is still in the ring. Once the writer is gone the ring has
+     * no consumer, so callers take turns draining it.
+     */
+    private void drainAfterWriter() {
+        try {
+            writer.join(drainTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (writer.isAlive()) {
+            return;
+        }
+        synchronized (ring) {
+            List<AuditLog> leftover = new ArrayList<>(batchSize);
+            while (ring.drainTo(leftover, batchSize) > 0) {
+                flush(leftover);
+                leftover = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+        while (true) {
+            int drained = ring.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty() && batchStartedAt == 0) {
+                batchStartedAt = System.nanoTime();
+            }
+
+            boolean stopping = !running && ring.isEmpty();
+            boolean due = !batch.isEmpty() && System.nanoTime() - batchStartedAt >= flushNanos;
+            if (batch.size() >= batchSize || due || (stopping && !batch.isEmpty())) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+                batchStartedAt = 0;
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            if (drained == 0) {
+                if (batch.isEmpty()) {
+                    replaySpilled();
+                    LockSupport.parkNanos(this, flushNanos);
+                } else {
+                    LockSupport.parkNanos(this, flushNanos - (System.nanoTime() - batchStartedAt));
+                }
+            }
+        }
+    }
+
+    private void flush(List<AuditLog> batch) {
+        batch.forEach(AuditLog::resolveDetails);
+        try {
+            auditLogRepository.saveAll(batch);
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} audit records", batch.size(), e);
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                batch.forEach(this::spill);
+            } else {
+                failed.add(batch.size());
+            }
+        }
+    }
+
+    private void saveDirectly(AuditLog record) {
+        try {
+            auditLogRepository.save(record);
+            written.increment();
+        } catch (RuntimeException e) {
+            log.error("Failed to write audit record", e);
+            failed.increment();
+        }
+    }
+
+    private synchronized void spill(AuditLog record) {
+        record.resolveDetails();
+        try {
+            if (spillWriter == null) {
+                Files.createDirectories(spillDirectory);
+                spillWriter = Files.newBufferedWriter(spillDirectory.resolve(SPILL_FILE), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            spillWriter.write(objectMapper.writeValueAsString(record));
+            spillWriter.newLine();
+            spillWriter.flush();
+            spilled.increment();
+        } catch (IOException e) {
+            log.error("Failed to spill audit record, dropping it", e);
+            dropped.increment();
+        }
+    }
+
+    private synchronized void closeSpillWriter() {
+        if (spillWriter != null) {
+            try {
+                spillWriter.close();
+            } catch (IOException e) {
+                log.warn("Failed to close audit spill file", e);
+            }
+            spillWriter = null;
+        }
+    }
+
+    /**
+     * Moves the current spill file aside and loads every set-aside file into the database. Writer thread only.
+     */
+    private void replaySpilled() {
+        if (overflowPolicy != OverflowPolicy.SPILL || !Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        try {
+            Path current = spillDirectory.resolve(SPILL_FILE);
+            synchronized (this) {
+                closeSpillWriter();
+                if (Files.exists(current) && Files.size(current) > 0) {
+                    Files.move(current, spillDirectory.resolve(SPILL_FILE + "." + System.currentTimeMillis() + REPLAY_SUFFIX),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "*" + REPLAY_SUFFIX)) {
+                for (Path file : files) {
+                    replayFile(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to replay spilled audit records, will retry", e);
+        }
+    }
+
+    /**
+     * Loads the file in batches, skipping the lines a previous attempt already saved, and deletes it once done.
+     */
+    private void replayFile(Path file) throws IOException {
+        Checkpoint checkpoint = new Checkpoint(file);
+        long done = checkpoint.read();
+        long lineNumber = 0;
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<AuditLog> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (++lineNumber <= done || line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, AuditLog.class));
+                } catch (JsonProcessingException e) {
+                    // A line cut short by a crash while spilling; the records around it are intact.
+                    log.warn("Skipping unreadable line {} of {}", lineNumber, file.getFileName());
+                }
+                if (batch.size() == batchSize) {
+                    auditLogRepository.saveAll(batch);
+                    checkpoint.write(lineNumber);
+                    replayed += batch.size();
+                    written.add(batch.size());
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                auditLogRepository.saveAll(batch);
+                replayed += batch.size();
+                written.add(batch.size());
+            }
+        }
+        Files.delete(file);
+        checkpoint.delete();
+        log.info("Replayed {} spilled audit records from {}", replayed, file.getFileName());
+    }
+
+    /**
+     * @param queued  records waiting for the writer
+     * @param written records saved since startup
+     * @param dropped records discarded because the ring was full
+     * @param spilled records written to the spill file
+     * @param failed  records lost because the database rejected their batch
+     */
+    public record Stats(int queued, long written, long dropped, long spilled, long failed) {
+    }
+}
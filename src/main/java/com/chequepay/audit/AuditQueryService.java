@@ -0,0 +1,147 @@
+package com.chequepay.audit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Searches the audit log newest first, using keyset pagination.
+ * <p>
+ * Each page is a query for the rows that sort after the last row of the previous page, ordered by
+ * {@code (timestamp, id)} descending and limited to the page size. Every filter is served by a composite index
+ * ending in {@code (timestamp, id)}, so the database seeks straight to the cursor however deep the caller pages,
+ * where an OFFSET would have it read and discard every earlier row.
+ * <p>
+ * Streamed pages are detached once they have been passed on. With open-session-in-view the request's persistence
+ * context would otherwise keep every row streamed so far.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    public static final int PAGE_SIZE = 500;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "timestamp", "id");
+
+    private final AuditLogRepository auditLogRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Returns at most {@code size} matching records that sort after {@code after}, or the newest ones when
+     * {@code after} is null.
+     */
+    public List<AuditLog> page(Filter filter, Cursor after, int size) {
+        return auditLogRepository.findBy(specification(filter, after),
+                query -> query.sortBy(NEWEST_FIRST).limit(size).all());
+    }
+
+    /**
+     * Passes up to {@code limit} matching records to {@code sink}, fetching one page at a time so that only a
+     * page is ever held in memory. A limit of 0 streams every match. Returns the number of records passed.
+     */
+    public long stream(Filter filter, Cursor after, long limit, Consumer<AuditLog> sink) {
+        long sent = 0;
+        Cursor cursor = after;
+        while (limit <= 0 || sent < limit) {
+            int size = limit <= 0 ? PAGE_SIZE : (int) Math.min(PAGE_SIZE, limit - sent);
+            List<AuditLog> page = page(filter, cursor, size);
+            for (AuditLog record : page) {
+                sink.accept(record);
+            }
+            if (!page.isEmpty() && entityManager.contains(page.get(0))) {
+                page.forEach(entityManager::detach);
+            }
+            sent += page.size();
+            if (page.size() < size) {
+                break;
+            }
+            cursor = Cursor.of(page.get(page.size() - 1));
+        }
+        return sent;
+    }
+
+    private static Specification<AuditLog> specification(Filter filter, Cursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.username() != null) {
+                predicates.add(cb.equal(root.get("username"), filter.username()));
+            }
+            if (filter.eventType() != null) {
+                predicates.add(cb.equal(root.get("eventType"), filter.eventType()));
+            }
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.get("timestamp"), filter.to()));
+            }
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("timestamp"), after.timestamp()),
+                        cb.and(cb.equal(root.get("timestamp"), after.timestamp()),
+                                cb.lessThan(root.get("id"), after.id()))));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Search criteria; null fields match everything. {@code from} is inclusive and {@code to} exclusive.
+     */
+    public record Filter(String username, String eventType, String status, LocalDateTime from, LocalDateTime to) {
+
+        public Filter {
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new IllegalArgumentException("'from' must be before 'to'");
+            }
+        }
+
+        public boolean matches(AuditLog record) {
+            return (username == null || username.equals(record.getUsername()))
+                    && (eventType == null || eventType.equals(record.getEventType()))
+                    && (status == null || status.equals(record.getStatus()))
+                    && (from == null || (record.getTimestamp() != null && !record.getTimestamp().isBefore(from)))
+                    && (to == null || (record.getTimestamp() != null && record.getTimestamp().isBefore(to)));
+        }
+    }
+
+    /**
+     * Position after a given record, written as {@code <timestamp>,<id>} using that record's own fields.
+     */
+    public record Cursor(LocalDateTime timestamp, UUID id) {
+
+        public static Cursor of(AuditLog record) {
+            return new Cursor(record.getTimestamp(), record.getId());
+        }
+
+        public static Cursor parse(String value) {
+            int comma = value.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Cursor must be <timestamp>,<id>");
+            }
+            try {
+                return new Cursor(LocalDateTime.parse(value.substring(0, comma)), UUID.fromString(value.substring(comma + 1)));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor timestamp");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + "," + id;
+        }
+    }
+}
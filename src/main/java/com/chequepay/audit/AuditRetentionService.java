@@ -0,0 +1,290 @@
+package com.chequepay.audit;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps {@code audit_logs} to a fixed number of days and moves older records into the {@link AuditArchive}.
+ * <p>
+ * On PostgreSQL the table is range-partitioned by day on {@code timestamp}. At startup an unpartitioned table is
+ * converted in place, and partitions are created {@code precreate-days} ahead. A {@code DEFAULT} partition catches
+ * late rows that fall outside every partition. Each run detaches partitions older than {@code retention-days},
+ * writes their rows to a daily archive and drops them, so expiring a day costs no vacuum or index maintenance on
+ * the live table.
+ * <p>
+ * Other databases, H2 included, have no declarative partitioning. There the run archives expired rows one day at
+ * a time, at most {@value #ROWS_PER_FILE} to a file, and deletes exactly the rows it archived, by id. A late
+ * record written into an expired day after its rows were read is left for the next pass instead of being deleted
+ * unarchived. Either way the hot table holds a constant number of days in steady state. A crash between
+ * archiving rows and removing them archives those rows again on the next run, into a second file.
+ */
+@Slf4j
+@Component
+public class AuditRetentionService {
+
+    static final String TABLE = "audit_logs";
+
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String COLUMNS = "id, event_type, username, action, http_method, path, details, timestamp, ip_address, status";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int ROWS_PER_FILE = 100_000;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditArchive auditArchive;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int precreateDays;
+    private final long checkMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean partitioned;
+
+    public AuditRetentionService(DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 AuditArchive auditArchive,
+                                 @Value("${audit.retention.enabled:true}") boolean enabled,
+                                 @Value("${audit.retention.days:30}") int retentionDays,
+                                 @Value("${audit.partition.precreate-days:7}") int precreateDays,
+                                 @Value("${audit.retention.check-ms:3600000}") long checkMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditArchive = auditArchive;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.precreateDays = precreateDays;
+        this.checkMillis = checkMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (isPostgres()) {
+            preparePartitions(LocalDate.now());
+            partitioned = true;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audit-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce(LocalDate.now());
+            } catch (RuntimeException e) {
+                log.error("Audit retention run failed, will retry", e);
+            }
+        }, 0, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Archives and removes every record from before {@code today - retention-days}, and returns how many were
+     * archived.
+     */
+    public long runOnce(LocalDate today) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+        long archived = 0;
+        if (partitioned) {
+            createPartitions(today, today.plusDays(precreateDays));
+            archived += archiveExpiredPartitions(cutoff);
+            archived += archiveExpiredRows(DEFAULT_PARTITION, cutoff);
+        } else {
+            archived += archiveExpiredRows(TABLE, cutoff);
+        }
+        if (archived > 0) {
+            log.info("Archived {} audit records from before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Converts an unpartitioned {@code audit_logs} into a partitioned one with the same columns and indexes,
+     * keeping its rows. Does nothing if the table is already partitioned.
+     */
+    private void preparePartitions(LocalDate today) {
+        Boolean alreadyPartitioned = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt
+                               JOIN pg_class c ON c.oid = pt.partrelid
+                               WHERE c.relname = ?)""", Boolean.class, TABLE);
+        if (Boolean.TRUE.equals(alreadyPartitioned)) {
+            createPartitions(today, today.plusDays(precreateDays));
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            String old = TABLE + "_unpartitioned";
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + old);
+            List<String> indexes = jdbcTemplate.queryForList(
+                    "SELECT indexdef FROM pg_indexes WHERE tablename = ? AND indexname NOT LIKE '%pkey'", String.class, old);
+            LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + old, LocalDateTime.class);
+
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + old + " INCLUDING DEFAULTS) PARTITION BY RANGE (timestamp)");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, timestamp)");
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+            // Rows older than the retention window land in the default partition and are archived from there.
+            LocalDate first = today.minusDays(retentionDays);
+            if (oldest != null && oldest.toLocalDate().isAfter(first)) {
+                first = oldest.toLocalDate().isBefore(today) ? oldest.toLocalDate() : today;
+            }
+            createPartitions(first, today.plusDays(precreateDays));
+            jdbcTemplate.execute("INSERT INTO " + TABLE + " SELECT * FROM " + old);
+            jdbcTemplate.execute("DROP TABLE " + old);
+            for (String index : indexes) {
+                jdbcTemplate.execute(index.replace(" " + old + " ", " " + TABLE + " ")
+                        .replace("." + old + " ", "." + TABLE + " "));
+            }
+        });
+        log.info("Converted {} to daily range partitions", TABLE);
+    }
+
+    private void createPartitions(LocalDate first, LocalDate last) {
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + DAY.format(day)
+                        + " PARTITION OF " + TABLE
+                        + " FOR VALUES FROM ('" + day.atStartOfDay() + "') TO ('" + day.plusDays(1).atStartOfDay() + "')");
+            } catch (DataAccessException e) {
+                // Rows for this day are already in the default partition; they are archived from there instead.
+                log.warn("Could not create audit partition for {}: {}", day, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Archives and drops every daily partition older than the cutoff, including ones a previous run detached
+     * but did not get to drop.
+     */
+    private long archiveExpiredPartitions(LocalDate cutoff) {
+        List<String> attached = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = ?""", String.class, TABLE);
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT tablename FROM pg_tables WHERE tablename LIKE ? ORDER BY tablename", String.class,
+                PARTITION_PREFIX.replace("_", "\\_") + "%");
+
+        long archived = 0;
+        for (String partition : partitions) {
+            LocalDate day = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), DAY);
+            if (!day.isBefore(cutoff)) {
+                continue;
+            }
+            if (attached.contains(partition)) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+            }
+            archived += archive(day, "SELECT " + COLUMNS + " FROM " + partition + " ORDER BY timestamp, id", id -> { });
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+        return archived;
+    }
+
+    /**
+     * Archives and deletes the rows of {@code table} from before the cutoff, oldest day first and at most
+     * {@link #ROWS_PER_FILE} rows per file. Only rows that are in a committed archive file are deleted.
+     */
+    private long archiveExpiredRows(String table, LocalDate cutoff) {
+        long archived = 0;
+        while (true) {
+            LocalDateTime oldest = jdbcTemplate.queryForObject(
+                    "SELECT MIN(timestamp) FROM " + table + " WHERE timestamp < ?", LocalDateTime.class,
+                    Timestamp.valueOf(cutoff.atStartOfDay()));
+            if (oldest == null) {
+                return archived;
+            }
+            LocalDate day = oldest.toLocalDate();
+            List<UUID> ids = new ArrayList<>();
+            archived += archive(day, "SELECT " + COLUMNS + " FROM " + table
+                            + " WHERE timestamp >= ? AND timestamp < ? ORDER BY timestamp, id LIMIT " + ROWS_PER_FILE,
+                    ids::add, Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "DELETE FROM " + table + " WHERE id = ?", ids, DELETE_BATCH_SIZE, (ps, id) -> ps.setObject(1, id)));
+        }
+    }
+
+    /**
+     * Streams the rows returned by {@code sql} into a new archive file for {@code day} and commits the file,
+     * passing the id of every archived row to {@code archivedIds}.
+     */
+    private long archive(LocalDate day, String sql, Consumer<UUID> archivedIds, Object... args) {
+        try (AuditArchive.Writer writer = auditArchive.open(day)) {
+            // PostgreSQL only honours the fetch size, and so only streams, inside a transaction.
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                        try {
+                            AuditLog record = toAuditLog(rs);
+                            writer.write(record);
+                            archivedIds.accept(record.getId());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, args));
+            if (writer.count() > 0) {
+                writer.commit();
+            }
+            return writer.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static AuditLog toAuditLog(ResultSet rs) throws SQLException {
+        return AuditLog.builder()
+                .id(rs.getObject("id", UUID.class))
+                .eventType(rs.getString("event_type"))
+                .username(rs.getString("username"))
+                .action(rs.getString("action"))
+                .httpMethod(rs.getString("http_method"))
+                .path(rs.getString("path"))
+                .details(rs.getString("details"))
+                .timestamp(rs.getObject("timestamp", LocalDateTime.class))
+                .ipAddress(rs.getString("ip_address"))
+                .status(rs.getString("status"))
+                .build();
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("postgresql");
+    }
+}
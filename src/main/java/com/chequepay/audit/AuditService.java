@@ -1,25 +1,95 @@
 package com.chequepay.audit;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
 public class AuditService {
 
     private final AuditLogRepository auditLogRepository;
+    private final AuditPipeline auditPipeline;
+    private final AuditJournal auditJournal;
+    private final AuditEventRenderer renderer;
+    private final MaskingUtil masker;
+
+    /**
+     * Creates a service that saves every record on the calling thread, summarizes results and masks the default
+     * sensitive keys.
+     */
+    public AuditService(AuditLogRepository auditLogRepository) {
+        this(auditLogRepository, null, null, new AuditEventRenderer(new ObjectMapper(), "summary", 1024, 1.0),
+                MaskingUtil.DEFAULT_KEYS.toArray(String[]::new));
+    }
+
+    @Autowired
+    public AuditService(AuditLogRepository auditLogRepository,
+                        AuditPipeline auditPipeline,
+                        AuditJournal auditJournal,
+                        AuditEventRenderer renderer,
+                        @Value("${audit.masking.keys:password,email,phoneNumber,encryptedKey}") String[] maskedKeys) {
+        this.auditLogRepository = auditLogRepository;
+        this.auditPipeline = auditPipeline;
+        this.auditJournal = auditJournal;
+        this.renderer = renderer;
+        this.masker = new MaskingUtil(Set.of(maskedKeys));
+    }
 
     public void recordEvent(String eventType, String username, String details, String ipAddress, String status) {
         AuditLog log = AuditLog.builder()
                 .eventType(eventType)
                 .username(username)
-                .details(MaskingUtil.maskSensitive(details))
+                .details(masker.mask(details))
                 .ipAddress(ipAddress)
                 .timestamp(LocalDateTime.now())
                 .status(status)
                 .build();
-        auditLogRepository.save(log);
+        write(log);
+    }
+
+    /**
+     * Records a controller call. A summary is a few dozen characters and is rendered here, so the record does not
+     * keep the result alive while it waits in the queue. Only {@code FULL} details are produced when the record is
+     * written, which in async mode is on the writer thread.
+     */
+    public void record(AuditEvent event) {
+        if (!renderer.shouldRecord(event)) {
+            return;
+        }
+        AuditLog.AuditLogBuilder builder = AuditLog.builder()
+                .eventType(event.getEventType())
+                .username(event.getUsername())
+                .action(event.getAction())
+                .httpMethod(event.getHttpMethod())
+                .path(event.getPath())
+                .ipAddress(event.getIpAddress())
+                .timestamp(LocalDateTime.now())
+                .status(event.getStatus());
+        if (event.getMessage() == null && renderer.policyOf(event) == AuditCapture.Policy.FULL) {
+            builder.pendingDetails(() -> renderer.cap(masker.mask(renderer.render(event))));
+        } else {
+            builder.details(renderer.cap(masker.mask(renderer.render(event))));
+        }
+        write(builder.build());
+    }
+
+    private void write(AuditLog log) {
+        if (auditJournal != null && auditJournal.isEnabled()) {
+            try {
+                auditJournal.append(log);
+                return;
+            } catch (RuntimeException e) {
+                // Journal not open yet or out of disk: fall through and write the record directly.
+            }
+        }
+        if (auditPipeline != null && auditPipeline.isAsync()) {
+            auditPipeline.submit(log);
+        } else {
+            auditLogRepository.save(log);
+        }
     }
 }
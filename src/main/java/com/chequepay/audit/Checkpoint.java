@@ -0,0 +1,55 @@
+package com.chequepay.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records how far a file has been loaded into the database, in a {@code <file>.offset} file next to it.
+ * <p>
+ * A new value is written to a temporary file, synced and renamed over the old one, so a crash leaves either the
+ * previous or the new value and never a torn one. A checkpoint that cannot be parsed anyway is treated as absent,
+ * which reloads the file from the start rather than leaving it stuck.
+ */
+@Slf4j
+final class Checkpoint {
+
+    static final String SUFFIX = ".offset";
+
+    private final Path path;
+    private final Path temporary;
+
+    Checkpoint(Path file) {
+        this.path = file.resolveSibling(file.getFileName() + SUFFIX);
+        this.temporary = file.resolveSibling(file.getFileName() + SUFFIX + ".tmp");
+    }
+
+    long read() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String value = Files.readString(path, StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring unreadable checkpoint {}: '{}'", path.getFileName(), value);
+            return 0;
+        }
+    }
+
+    void write(long value) throws IOException {
+        Files.write(temporary, Long.toString(value).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(temporary);
+    }
+}
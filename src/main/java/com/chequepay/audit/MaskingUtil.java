@@ -1,14 +1,160 @@
 package com.chequepay.audit;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Masks the values of sensitive JSON fields in audit details.
+ * <p>
+ * The input is scanned once, left to right. String literals are skipped as whole tokens, so quotes and colons
+ * inside values are never mistaken for structure, and a literal followed by {@code :} is treated as a key. When
+ * a key matches one of the sensitive names (ignoring case) and its value is a string or a number, the pair is
+ * written as {@code "key":"***"}; a string value cut off by truncation is masked to the end. Nothing is allocated
+ * until the first match, and input without sensitive fields is returned as the same instance.
+ */
 public class MaskingUtil {
 
+    public static final Set<String> DEFAULT_KEYS = Set.of("password", "email", "phoneNumber", "encryptedKey");
+
+    private static final MaskingUtil DEFAULT = new MaskingUtil(DEFAULT_KEYS);
+    private static final String MASK = ":\"***\"";
+
+    /** Sensitive key names grouped by length, so a key is only compared with names it could equal. */
+    private final String[][] keysByLength;
+
+    public MaskingUtil(Collection<String> sensitiveKeys) {
+        int maxLength = 0;
+        for (String key : sensitiveKeys) {
+            maxLength = Math.max(maxLength, key.length());
+        }
+        List<List<String>> buckets = new ArrayList<>(maxLength + 1);
+        for (int i = 0; i <= maxLength; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String key : sensitiveKeys) {
+            if (!key.isBlank()) {
+                buckets.get(key.length()).add(key);
+            }
+        }
+        this.keysByLength = new String[maxLength + 1][];
+        for (int i = 0; i <= maxLength; i++) {
+            keysByLength[i] = buckets.get(i).toArray(String[]::new);
+        }
+    }
+
     public static String maskSensitive(String input) {
+        return DEFAULT.mask(input);
+    }
+
+    public String mask(String input) {
         if (input == null) return null;
 
-        return input
-                .replaceAll("(?i)\"password\"\\s*:\\s*\".*?\"", "\"password\":\"***\"")
-                .replaceAll("(?i)\"email\"\\s*:\\s*\".*?\"", "\"email\":\"***\"")
-                .replaceAll("(?i)\"phoneNumber\"\\s*:\\s*\".*?\"", "\"phoneNumber\":\"***\"")
-                .replaceAll("(?i)\"encryptedKey\"\\s*:\\s*\".*?\"", "\"encryptedKey\":\"***\"");
+        int length = input.length();
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            if (input.charAt(i) != '"') {
+                i++;
+                continue;
+            }
+            int keyEnd = endOfString(input, i);
+            if (keyEnd < 0) {
+                break;
+            }
+            int colon = skipWhitespace(input, keyEnd);
+            if (colon >= length || input.charAt(colon) != ':') {
+                i = keyEnd;
+                continue;
+            }
+            int valueStart = skipWhitespace(input, colon + 1);
+            if (!isSensitive(input, i + 1, keyEnd - 1)) {
+                i = valueStart;
+                continue;
+            }
+            int valueEnd = endOfScalar(input, valueStart);
+            if (valueEnd < 0 && valueStart < length && input.charAt(valueStart) == '"') {
+                // The string runs to the end of the input, as in truncated details: mask everything after the key.
+                valueEnd = length;
+            } else if (valueEnd < 0) {
+                i = valueStart;
+                continue;
+            }
+
+            if (out == null) {
+                out = new StringBuilder(length + MASK.length());
+            }
+            out.append(input, copied, keyEnd).append(MASK);
+            copied = valueEnd;
+            i = valueEnd;
+        }
+
+        if (out == null) {
+            return input;
+        }
+        return out.append(input, copied, length).toString();
+    }
+
+    private boolean isSensitive(String input, int start, int end) {
+        int length = end - start;
+        if (length >= keysByLength.length) {
+            return false;
+        }
+        for (String key : keysByLength[length]) {
+            if (input.regionMatches(true, start, key, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the index just past the string literal opening at {@code start}, or -1 if it is never closed. */
+    private static int endOfString(String input, int start) {
+        int i = start + 1;
+        while (i < input.length()) {
+            char c = input.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the index just past the string or number value at {@code start}, or -1 for any other value. */
+    private static int endOfScalar(String input, int start) {
+        if (start >= input.length()) {
+            return -1;
+        }
+        char first = input.charAt(start);
+        if (first == '"') {
+            return endOfString(input, start);
+        }
+        if (first != '-' && (first < '0' || first > '9')) {
+            return -1;
+        }
+        int i = start + 1;
+        while (i < input.length()) {
+            char c = input.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String input, int start) {
+        int i = start;
+        while (i < input.length() && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        return i;
     }
 }
@@ -0,0 +1,113 @@
+package com.chequepay.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt password encoder that does its hashing on a small dedicated pool instead of the calling request thread.
+ * <p>
+ * The pool has a fixed number of workers and a bounded queue. When both are full the call fails at once with
+ * {@link RejectedExecutionException}, so a burst of logins waits in a short line of its own rather than holding
+ * every servlet thread, and the rest of the API stays responsive. The caller still waits for its own hash to
+ * finish, which keeps the {@link PasswordEncoder} contract unchanged.
+ * <p>
+ * The BCrypt cost is chosen once at startup as the highest strength whose hash fits the target time on this
+ * machine. Stored hashes with a lower cost report {@link #upgradeEncoding(String)}, so Spring Security re-hashes
+ * them on the user's next successful login.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+
+    public BoundedPasswordEncoder(int strength, int workers, int queueCapacity) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Returns the highest strength between {@code minStrength} and {@code maxStrength} whose hash takes no longer
+     * than {@code targetMillis}. Each step up doubles the work, so one timed hash at the minimum is enough.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration");
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double elapsedMillis = Math.max(0.01, (System.nanoTime() - start) / 1_000_000.0);
+
+        int strength = minStrength;
+        while (strength < maxStrength && elapsedMillis * 2 <= targetMillis) {
+            strength++;
+            elapsedMillis *= 2;
+        }
+        log.info("Calibrated BCrypt strength {} (~{} ms per hash, target {} ms)", strength, Math.round(elapsedMillis), targetMillis);
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * The underlying encoder, for bulk jobs that hash on threads of their own and must not crowd interactive
+     * logins out of the bounded pool.
+     */
+    public PasswordEncoder direct() {
+        return delegate;
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.chequepay.config;
 
 import com.chequepay.service.CustomUserDetailsService;
 import com.chequepay.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -23,28 +26,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
 
+    // "lookup" loads the user on every request; "stateless" trusts the role embedded in a current-version token.
+    @Value("${auth.mode:lookup}")
+    private String authMode;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwtToken = null;
+        Claims claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwtToken = authHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwtToken);
+                // Signature and expiry are both checked by this one parse.
+                claims = jwtUtil.validateToken(authHeader.substring(7));
             } catch (Exception e) {
                 logger.error("Invalid JWT: " + e.getMessage());
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        String username = claims == null ? null : claims.getSubject();
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && jwtUtil.isCurrentVersion(claims) && !jwtUtil.isRevoked(claims)) {
+            String role = claims.get(JwtUtil.ROLE_CLAIM, String.class);
+            UserDetails userDetails = "stateless".equals(authMode) && role != null
+                    ? User.withUsername(username).password("").roles(role).build()
+                    : userDetailsService.loadUserByUsername(username);
 
-            if (jwtUtil.isTokenValid(jwtToken, userDetails.getUsername())) {
+            if (username.equals(userDetails.getUsername())) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
@@ -1,13 +1,13 @@
 package com.chequepay.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import com.chequepay.service.CustomUserDetailsService;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -27,6 +27,7 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                     .requestMatchers("/auth/register", "/auth/login").permitAll()
                     .requestMatchers("/auth/profile").authenticated()
+                    .requestMatchers("/admin/**").hasRole("ADMIN")
                     .requestMatchers("/account/**", "/cheques/**", "/transfer/**", "/clearing/**").authenticated()
                     .anyRequest().authenticated()
             )
@@ -37,8 +38,13 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt.target-ms:250}") long targetMillis,
+                                           @Value("${auth.password.bcrypt.min-strength:10}") int minStrength,
+                                           @Value("${auth.password.bcrypt.max-strength:14}") int maxStrength,
+                                           @Value("${auth.password.hash.workers:2}") int workers,
+                                           @Value("${auth.password.hash.queue-capacity:32}") int queueCapacity) {
+        int strength = BoundedPasswordEncoder.calibrate(targetMillis, minStrength, maxStrength);
+        return new BoundedPasswordEncoder(strength, workers, queueCapacity);
     }
 
     @Bean
@@ -0,0 +1,36 @@
+package com.chequepay.controller;
+
+import com.chequepay.audit.AuditJournal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/audit/journal")
+@RequiredArgsConstructor
+public class AuditJournalController {
+
+    private final AuditJournal auditJournal;
+
+    @GetMapping
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(auditJournal.stats());
+    }
+
+    /**
+     * Loads every sealed segment in the journal directory into the database, including segments copied in by hand.
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<?> replay() {
+        try {
+            long loaded = auditJournal.replay();
+            return ResponseEntity.ok(Map.of("success", true, "loaded", loaded));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Internal server error"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.chequepay.controller;
+
+import com.chequepay.audit.AuditArchive;
+import com.chequepay.audit.AuditQueryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/audit/logs")
+@RequiredArgsConstructor
+public class AuditQueryController {
+
+    private final AuditQueryService auditQueryService;
+    private final AuditArchive auditArchive;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Streams matching audit records as NDJSON, newest first. To continue after the last line received, pass
+     * {@code cursor=<timestamp>,<id>} built from that line. {@code limit=0} streams every match.
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam(required = false) String username,
+                                    @RequestParam(required = false) String eventType,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "1000") long limit) {
+        AuditQueryService.Filter filter;
+        AuditQueryService.Cursor after;
+        try {
+            filter = new AuditQueryService.Filter(username, eventType, status, from, to);
+            after = cursor != null ? AuditQueryService.Cursor.parse(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = output -> auditQueryService.stream(filter, after, limit, record -> {
+            try {
+                writeLine(output, objectMapper.writeValueAsBytes(record));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /**
+     * Streams archived audit records matching the filters as NDJSON, oldest day first. Covers records that the
+     * retention job has moved out of the database.
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<?> searchArchive(@RequestParam(required = false) String username,
+                                           @RequestParam(required = false) String eventType,
+                                           @RequestParam(required = false) String status,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        AuditQueryService.Filter filter;
+        try {
+            filter = new AuditQueryService.Filter(username, eventType, status, from, to);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = output -> auditArchive.read(filter, record -> {
+            try {
+                writeLine(output, objectMapper.writeValueAsBytes(record));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    private static void writeLine(OutputStream output, byte[] json) throws IOException {
+        output.write(json);
+        output.write('\n');
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestController
@@ -33,6 +34,8 @@ public class AuthController {
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new AuthResponse(false, e.getMessage(), null));
+        } catch (RejectedExecutionException e) {
+            return busy();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AuthResponse(false, "Internal server error", null));
@@ -47,6 +50,8 @@ public class AuthController {
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new AuthResponse(false, "Invalid username or password", null));
+        } catch (RejectedExecutionException e) {
+            return busy();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AuthResponse(false, "Internal server error", null));
@@ -66,8 +71,17 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public AuthResponse logout() {
+    public AuthResponse logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            authService.logout(authHeader.substring(7));
+        }
         SecurityContextHolder.clearContext();
         return new AuthResponse(true, "Logged out successfully", null);
     }
+
+    private static ResponseEntity<AuthResponse> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(new AuthResponse(false, "Too many sign-in requests, please retry shortly", null));
+    }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.chequepay.controller;
 
+import com.chequepay.audit.AuditCapture;
 import com.chequepay.dto.ChequeRequest;
 import com.chequepay.dto.ChequeResponse;
 import com.chequepay.dto.ChequeSplitRequest;
 import com.chequepay.service.ChequeService;
+import com.chequepay.service.ChequeSigningPipeline;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,7 +27,9 @@ public class ChequeController {
         try {
             String payerUsername = authentication.getName();
             ChequeResponse response = chequeService.issueCheque(payerUsername, request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            HttpStatus status = ChequeSigningPipeline.PENDING_SIGNATURE.equals(response.getStatus())
+                    ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return ResponseEntity.status(status).body(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("success", false, "message", e.getMessage()));
@@ -52,7 +56,26 @@ public class ChequeController {
         }
     }
 
+    @GetMapping("/{id}/await")
+    public ResponseEntity<?> awaitCheque(@PathVariable UUID id,
+                                         @RequestParam(defaultValue = "5000") long timeoutMs) {
+        try {
+            ChequeResponse response = chequeService.awaitCheque(id, timeoutMs);
+            if (ChequeSigningPipeline.PENDING_SIGNATURE.equals(response.getStatus())) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Internal server error"));
+        }
+    }
+
     @PatchMapping("/{id}/status")
+    @AuditCapture(AuditCapture.Policy.FULL)
     public ResponseEntity<?> updateStatus(@PathVariable UUID id,
                                                  @RequestParam String status) {
         try {
@@ -61,6 +84,9 @@ public class ChequeController {
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("success", false, "message", "Internal server error"));
@@ -68,6 +94,7 @@ public class ChequeController {
     }
 
     @PostMapping("/{id}/split")
+    @AuditCapture(AuditCapture.Policy.SUMMARY)
     public ResponseEntity<?> splitCheque(@PathVariable UUID id,
                                             @RequestBody ChequeSplitRequest request) {
         try {
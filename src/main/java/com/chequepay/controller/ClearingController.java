@@ -1,5 +1,6 @@
 package com.chequepay.controller;
 
+import com.chequepay.dto.ChequeVerificationResult;
 import com.chequepay.service.ClearingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -55,6 +57,29 @@ public class ClearingController {
         }
     }
 
+    @PostMapping("/verify/batch")
+    public ResponseEntity<?> verifyBatch(Authentication authentication,
+                                         @RequestBody List<UUID> chequeIds) {
+        String currentUser = authentication.getName();
+
+        try {
+            List<ChequeVerificationResult> results = clearingService.verifyCheques(chequeIds, currentUser);
+            return ResponseEntity.ok(results);
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
+                    "success", false,
+                    "message", e.getMessage()
+            ));
+
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                    "success", false,
+                    "message", "Internal server error"
+            ));
+        }
+    }
+
     @PostMapping("/settle")
     public ResponseEntity<?> settle(Authentication authentication,
                                       @RequestParam UUID chequeId) {
@@ -1,5 +1,6 @@
 package com.chequepay.controller;
 
+import com.chequepay.audit.AuditCapture;
 import com.chequepay.service.TransferService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -22,12 +23,14 @@ public class TransferController {
     }
 
     @PostMapping("/qr")
+    @AuditCapture(AuditCapture.Policy.SUMMARY)
     public Map<String, Object> transferByQr(@RequestParam UUID chequeId) throws Exception {
         String qrBase64 = transferService.generateChequeQRCode(chequeId);
         return Map.of("qrCodeBase64", qrBase64);
     }
 
     @PostMapping("/p2p")
+    @AuditCapture(AuditCapture.Policy.SUMMARY)
     public Map<String, Object> transferByP2P(@RequestParam UUID chequeId) {
         String payload = transferService.transferChequeP2P(chequeId);
         return Map.of("payload", payload);
@@ -0,0 +1,39 @@
+package com.chequepay.controller;
+
+import com.chequepay.dto.UserImportReport;
+import com.chequepay.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/users")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    private final UserImportService userImportService;
+
+    /**
+     * Imports users from a CSV (with a header row) or NDJSON request body, chosen by its Content-Type.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importUsers(HttpServletRequest request) {
+        UserImportService.Format format = request.getContentType().startsWith("text/csv")
+                ? UserImportService.Format.CSV : UserImportService.Format.NDJSON;
+        try {
+            UserImportReport report = userImportService.importUsers(request.getInputStream(), format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Internal server error"));
+        }
+    }
+}
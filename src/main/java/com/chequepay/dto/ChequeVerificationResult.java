@@ -0,0 +1,14 @@
+package com.chequepay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class ChequeVerificationResult {
+    private UUID chequeId;
+    private boolean success;
+    private String message;
+}
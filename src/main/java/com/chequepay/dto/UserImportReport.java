@@ -0,0 +1,23 @@
+package com.chequepay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserImportReport {
+    private int total;
+    private int imported;
+    private int failed;
+    private List<RowError> errors;
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private int line;
+        private String username;
+        private String message;
+    }
+}
@@ -15,7 +15,7 @@ import java.util.UUID;
 public class Account {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false, unique = true)
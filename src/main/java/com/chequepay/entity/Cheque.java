@@ -16,7 +16,7 @@ import java.util.UUID;
 public class Cheque {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false)
@@ -43,17 +43,44 @@ public class Cheque {
     @Column(nullable = false)
     private String status;
 
-    @Column(length = 5000)
-    private String signature;
+    @Column(length = 512)
+    private byte[] signature;
 
-    @Column(length = 5000)
-    private String encryptedData;
+    @Column(length = 32)
+    private String signatureAlgorithm;
 
-    @Column(length = 5000)
-    private String encryptedKey;
+    // Key ring entry that produced the signature; keyId below names the one that encrypted the envelope.
+    @Column(length = 64)
+    private String signingKeyId;
+
+    // Set when the cheque was signed as a leaf of a Merkle batch; signature then covers the root.
+    @Column(length = 32)
+    private byte[] merkleRoot;
+
+    @Column(length = 1024)
+    private byte[] merkleProof;
+
+    private Integer merkleLeafIndex;
+
+    @Column(length = 2048)
+    private byte[] encryptedData;
+
+    @Column(length = 512)
+    private byte[] encryptedKey;
+
+    @Column(length = 64)
+    private String keyId;
+
+    // HMAC-SHA256 over the immutable cheque fields, checked instead of the signature for stored cheques.
+    @Column(length = 32)
+    private byte[] integrityTag;
 
     private UUID parentChequeId;
 
     @Column(unique = true, nullable = false)
     private String nonce;
+
+    // Lets a writer holding a stale copy, such as a signing worker racing a recovery run, fail instead of overwriting.
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.chequepay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revokedAt"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    // The token's jti claim.
+    @Id
+    @Column(length = 64)
+    private String jti;
+
+    private String username;
+
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
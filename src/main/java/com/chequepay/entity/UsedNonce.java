@@ -0,0 +1,32 @@
+package com.chequepay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "used_nonces", indexes = {
+        @Index(name = "idx_used_nonces_used_at", columnList = "usedAt"),
+        @Index(name = "idx_used_nonces_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsedNonce {
+
+    // The primary key is the uniqueness constraint that makes a nonce claimable exactly once across all nodes.
+    @Id
+    @Column(length = 64)
+    private String nonce;
+
+    private UUID chequeId;
+
+    @Column(nullable = false)
+    private LocalDateTime usedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
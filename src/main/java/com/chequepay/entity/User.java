@@ -1,12 +1,15 @@
 package com.chequepay.entity;
 
+import com.chequepay.service.UserCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_tokens_revoked_at", columnList = "tokensRevokedAt"))
+@EntityListeners(UserCacheInvalidator.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,7 +17,7 @@ import java.util.UUID;
 public class User {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false, unique = true)
@@ -34,4 +37,10 @@ public class User {
 
     @Column(nullable = false, length = 15)
     private String phoneNumber;
+
+    // Tokens carrying a lower version were revoked; see TokenRevocationService#revokeAll.
+    @Column(nullable = false)
+    private int tokenVersion;
+
+    private LocalDateTime tokensRevokedAt;
 }
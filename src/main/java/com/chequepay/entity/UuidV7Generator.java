@@ -0,0 +1,16 @@
+package com.chequepay.entity;
+
+import com.chequepay.util.UuidV7;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Assigns time-ordered version 7 UUIDs to entities whose id is annotated with {@link UuidV7Id}.
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return UuidV7.generate();
+    }
+}
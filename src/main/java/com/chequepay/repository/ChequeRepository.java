@@ -1,11 +1,24 @@
 package com.chequepay.repository;
 
 import com.chequepay.entity.Cheque;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface ChequeRepository extends JpaRepository<Cheque, UUID> {
     List<Cheque> findByStatus(String status);
-}
\ No newline at end of file
+
+    /**
+     * Locks and returns up to a page of cheques in the given status, skipping rows another transaction has locked
+     * ({@code FOR UPDATE SKIP LOCKED}). Must run inside a transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<Cheque> findByStatusOrderById(String status, Pageable pageable);
+}
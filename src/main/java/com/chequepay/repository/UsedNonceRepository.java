@@ -0,0 +1,37 @@
+package com.chequepay.repository;
+
+import com.chequepay.entity.UsedNonce;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface UsedNonceRepository extends JpaRepository<UsedNonce, String> {
+
+    // A plain INSERT rather than save(): save() would merge an existing row instead of failing on the duplicate key.
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO used_nonces (nonce, cheque_id, used_at, expires_at) "
+            + "VALUES (:nonce, :chequeId, :usedAt, :expiresAt)", nativeQuery = true)
+    int insertNonce(@Param("nonce") String nonce, @Param("chequeId") UUID chequeId,
+                    @Param("usedAt") LocalDateTime usedAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Keyset pagination: each page starts after the last nonce of the previous one, so reading the whole
+    // table costs the same per page no matter how far in it is.
+    @Query("select u.nonce from UsedNonce u where u.nonce > :after order by u.nonce")
+    List<String> findNoncesAfter(@Param("after") String after, Pageable page);
+
+    @Query("select u.nonce from UsedNonce u where u.usedAt >= :since")
+    List<String> findNoncesUsedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UsedNonce u where u.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
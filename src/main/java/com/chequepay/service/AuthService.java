@@ -9,24 +9,32 @@ import com.chequepay.entity.User;
 import com.chequepay.repository.UserRepository;
 import com.chequepay.repository.AccountRepository;
 import com.chequepay.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
+    public static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(5000);
+
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final TokenRevocationService tokenRevocationService;
 
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
@@ -36,13 +44,7 @@ public class AuthService {
             throw new IllegalArgumentException("Email already registered");
         }
 
-        if (!request.getRealname().matches("^[A-Za-z ]{1,25}$")) {
-            throw new IllegalArgumentException("Real name must be English letters and spaces only (max 25)");
-        }
-
-        if (!request.getPhoneNumber().matches("^[0-9]{1,15}$")) {
-            throw new IllegalArgumentException("Phone number must be digits only (max 15)");
-        }
+        validateProfile(request);
 
         try {
             User user = User.builder()
@@ -59,26 +61,44 @@ public class AuthService {
             Account account = Account.builder()
                     .username(user.getUsername())
                     .realname(request.getRealname())
-                    .balance(BigDecimal.valueOf(5000))
+                    .balance(INITIAL_BALANCE)
                     .build();
 
             accountRepository.save(account);
 
             return new AuthResponse(true, "User registered successfully", null);
 
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
            throw new RuntimeException("Error registering user", e);
         }
     }
 
+    /**
+     * Checks the free-text fields of a registration. Shared with the bulk import so both apply the same rules.
+     */
+    public static void validateProfile(RegisterRequest request) {
+        if (!request.getRealname().matches("^[A-Za-z ]{1,25}$")) {
+            throw new IllegalArgumentException("Real name must be English letters and spaces only (max 25)");
+        }
+
+        if (!request.getPhoneNumber().matches("^[0-9]{1,15}$")) {
+            throw new IllegalArgumentException("Phone number must be digits only (max 15)");
+        }
+    }
+
     public AuthResponse login(LoginRequest request) {
         try {
-            authenticationManager.authenticate(
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
             );
-            String token = jwtUtil.generateToken(request.getUsername());
+            int tokenVersion = userRepository.findByUsername(request.getUsername())
+                    .map(User::getTokenVersion)
+                    .orElse(0);
+            String token = jwtUtil.generateToken(request.getUsername(), roleOf(authentication), tokenVersion);
             return new AuthResponse(true, "Login successful", token);
-        } catch (BadCredentialsException e) {
+        } catch (BadCredentialsException | RejectedExecutionException e) {
             throw e;
         }
         catch (Exception e) {
@@ -86,6 +106,29 @@ public class AuthService {
         }
     }
 
+    /**
+     * Revokes the presented token so it cannot be used again, even though it has not expired. A token that no
+     * longer validates needs no revocation.
+     */
+    public void logout(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.validateToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        tokenRevocationService.revoke(claims);
+    }
+
+    private static String roleOf(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .map(authority -> authority.substring("ROLE_".length()))
+                .findFirst()
+                .orElse(null);
+    }
+
     public ProfileResponse profile(String username) {
         return userRepository.findByUsername(username)
                 .map(user -> new ProfileResponse(
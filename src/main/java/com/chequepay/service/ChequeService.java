@@ -9,25 +9,29 @@ import com.chequepay.entity.User;
 import com.chequepay.repository.AccountRepository;
 import com.chequepay.repository.ChequeRepository;
 import com.chequepay.repository.UserRepository;
-import com.chequepay.util.AESUtil;
 import com.chequepay.util.NonceStore;
-import com.chequepay.util.RSAUtil;
-import com.chequepay.util.SignatureUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 public class ChequeService {
 
+    private static final long MAX_AWAIT_MILLIS = 30_000;
+
     private final AccountRepository accountRepository;
     private final ChequeRepository chequeRepository;
     private final UserRepository userRepository;
-    private final KeyManager keyManager;
+    private final ChequeSigningPipeline signingPipeline;
+    private final VerificationCache verificationCache;
 
     public ChequeResponse issueCheque(String payerUsername, ChequeRequest request) {
         User payer = userRepository.findByUsername(payerUsername)
@@ -47,21 +51,6 @@ public class ChequeService {
         }
 
         try {
-            String nonce = NonceStore.generateNonce();
-
-            String chequeData = String.format(
-                    "{ \"amount\": %s, \"payer\": \"%s\", \"payee\": \"%s\", \"expiry\": \"%s\", \"nonce\": \"%s\" }",
-                    request.getAmount(),
-                    payerUsername,
-                    request.getPayeeUsername(),
-                    request.getExpiryDate(),
-                    nonce
-            );
-
-            String encryptedData = AESUtil.encrypt(chequeData, keyManager.getAesKey());
-            String encryptedKey = RSAUtil.encrypt(AESUtil.toBase64(keyManager.getAesKey()), keyManager.getRsaKeyPair().getPublic());
-            String signature = SignatureUtil.sign(chequeData, keyManager.getRsaKeyPair().getPrivate());
-
             Cheque cheque = Cheque.builder()
                     .amount(request.getAmount())
                     .payerUsername(payerUsername)
@@ -70,13 +59,14 @@ public class ChequeService {
                     .payeeRealname(payee.getRealname())
                     .issueDate(LocalDateTime.now())
                     .expiryDate(request.getExpiryDate())
-                    .status("ISSUED")
-                    .signature(signature)
-                    .encryptedData(encryptedData)
-                    .encryptedKey(encryptedKey)
-                    .nonce(nonce)
+                    .nonce(NonceStore.generateNonce())
                     .build();
 
+            if (signingPipeline.isAsync()) {
+                return toResponse(signingPipeline.submit(cheque));
+            }
+
+            signingPipeline.seal(List.of(cheque));
             chequeRepository.save(cheque);
 
             return toResponse(cheque);
@@ -92,12 +82,37 @@ public class ChequeService {
                 orElseThrow(() -> new IllegalArgumentException("Cheque not found"));
     }
 
+    /**
+     * Waits up to {@code timeoutMillis} for a cheque issued in async mode to leave PENDING_SIGNATURE and
+     * returns its current state either way.
+     */
+    public ChequeResponse awaitCheque(UUID chequeId, long timeoutMillis) {
+        CompletableFuture<Void> completion = signingPipeline.completion(chequeId);
+        if (completion != null) {
+            try {
+                completion.get(Math.min(timeoutMillis, MAX_AWAIT_MILLIS), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // The stored status tells the caller whether signing failed or is still running.
+            }
+        }
+        return getCheque(chequeId);
+    }
+
     public ChequeResponse updateStatus(UUID chequeId, String newStatus) {
         Cheque cheque = chequeRepository.findById(chequeId)
                 .orElseThrow(() -> new IllegalArgumentException("Cheque not found"));
 
+        // The signing pipeline owns pending cheques; changing them here would race the worker that seals them.
+        if (ChequeSigningPipeline.PENDING_SIGNATURE.equals(cheque.getStatus())
+                || ChequeSigningPipeline.PENDING_SIGNATURE.equals(newStatus)) {
+            throw new IllegalStateException("Cheques awaiting signature cannot change status");
+        }
+
         cheque.setStatus(newStatus);
         chequeRepository.save(cheque);
+        verificationCache.invalidate(chequeId);
 
         return toResponse(cheque);
     }
@@ -121,26 +136,8 @@ public class ChequeService {
         }
 
         try {
-            List<ChequeResponse> result = new ArrayList<>();
+            List<Cheque> children = new ArrayList<>();
             for (BigDecimal amt : request.getSplitAmounts()) {
-                String childNonce = NonceStore.generateNonce();
-
-                String chequeData = String.format(
-                        "{ \"amount\": %s, \"payer\": \"%s\", \"payee\": \"%s\", \"expiry\": \"%s\", \"nonce\": \"%s\" }",
-                        amt,
-                        parent.getPayerUsername(),
-                        parent.getPayeeUsername(),
-                        parent.getExpiryDate(),
-                        childNonce
-                );
-
-                String encryptedData = AESUtil.encrypt(chequeData, keyManager.getAesKey());
-                String encryptedKey = RSAUtil.encrypt(
-                        AESUtil.toBase64(keyManager.getAesKey()),
-                        keyManager.getRsaKeyPair().getPublic()
-                );
-                String signature = SignatureUtil.sign(chequeData, keyManager.getRsaKeyPair().getPrivate());
-
                 Cheque child = Cheque.builder()
                         .amount(amt)
                         .payerUsername(parent.getPayerUsername())
@@ -149,20 +146,24 @@ public class ChequeService {
                         .payeeRealname(parent.getPayeeRealname())
                         .issueDate(LocalDateTime.now())
                         .expiryDate(parent.getExpiryDate())
-                        .status("ISSUED")
                         .parentChequeId(parent.getId())
-                        .signature(signature)
-                        .encryptedData(encryptedData)
-                        .encryptedKey(encryptedKey)
-                        .nonce(childNonce)
+                        .nonce(NonceStore.generateNonce())
                         .build();
 
+                children.add(child);
+            }
+
+            // All children of a split are signed together, so in Merkle mode they share one signature.
+            signingPipeline.seal(children);
+            List<ChequeResponse> result = new ArrayList<>();
+            for (Cheque child : children) {
                 chequeRepository.save(child);
                 result.add(toResponse(child));
             }
 
             parent.setStatus("SPLIT");
             chequeRepository.save(parent);
+            verificationCache.invalidate(parent.getId());
 
             return result;
 
@@ -0,0 +1,31 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.util.SignatureScheme;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ChequeSignature {
+
+    private final SignatureScheme scheme;
+    private final String keyId;
+    private final byte[] signature;
+    private final byte[] merkleRoot;
+    private final byte[] merkleProof;
+    private final Integer merkleLeafIndex;
+
+    public static ChequeSignature single(SignatureScheme scheme, String keyId, byte[] signature) {
+        return new ChequeSignature(scheme, keyId, signature, null, null, null);
+    }
+
+    public void applyTo(Cheque cheque) {
+        cheque.setSignatureAlgorithm(scheme.getAlgorithm());
+        cheque.setSigningKeyId(keyId);
+        cheque.setSignature(signature);
+        cheque.setMerkleRoot(merkleRoot);
+        cheque.setMerkleProof(merkleProof);
+        cheque.setMerkleLeafIndex(merkleLeafIndex);
+    }
+}
@@ -0,0 +1,201 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.util.MerkleTree;
+import com.chequepay.util.SignatureScheme;
+import com.chequepay.util.SignatureUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Signs cheque payloads either one by one or, in {@code merkle} mode, as leaves of a Merkle tree whose
+ * root is signed once per batch.
+ * <p>
+ * In Merkle mode, single cheques are held for at most {@code cheque.signing.merkle.window-ms} so that
+ * cheques issued at the same time share one signature. Bulk callers such as splits use
+ * {@link #signAll(List)}, which always signs the whole list as one tree.
+ */
+@Slf4j
+@Component
+public class ChequeSigner {
+
+    public enum Mode { SINGLE, MERKLE }
+
+    private static final int MAX_VERIFIED_ROOTS = 10_000;
+    private static final long SIGN_TIMEOUT_SECONDS = 30;
+
+    private final KeyManager keyManager;
+    private final Mode mode;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private List<PendingLeaf> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private final ScheduledExecutorService flusher;
+
+    // Root signatures that have already been checked, so each batch costs one verification per node.
+    private final Map<ByteBuffer, Boolean> verifiedRoots = new ConcurrentHashMap<>();
+
+    public ChequeSigner(KeyManager keyManager,
+                        @Value("${cheque.signing.mode:single}") String mode,
+                        @Value("${cheque.signing.merkle.window-ms:20}") long windowMillis,
+                        @Value("${cheque.signing.merkle.max-batch-size:256}") int maxBatchSize) {
+        this.keyManager = keyManager;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = this.mode == Mode.MERKLE
+                ? Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "merkle-batch-signer"))
+                : null;
+    }
+
+    public ChequeSignature sign(byte[] payload) throws Exception {
+        if (mode == Mode.SINGLE) {
+            return signSingle(payload);
+        }
+        try {
+            return submit(payload).get(SIGN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    public List<ChequeSignature> signAll(List<byte[]> payloads) throws Exception {
+        if (mode == Mode.SINGLE) {
+            List<ChequeSignature> signatures = new ArrayList<>(payloads.size());
+            for (byte[] payload : payloads) {
+                signatures.add(signSingle(payload));
+            }
+            return signatures;
+        }
+        return signTree(payloads);
+    }
+
+    public boolean verify(Cheque cheque, byte[] payload) throws Exception {
+        SignatureScheme scheme = SignatureScheme.fromAlgorithm(cheque.getSignatureAlgorithm());
+        PublicKey publicKey = keyManager.getSigningKeyPair(cheque.getSigningKeyId(), scheme).getPublic();
+
+        if (cheque.getMerkleRoot() == null) {
+            return SignatureUtil.verify(payload, cheque.getSignature(), publicKey, scheme);
+        }
+
+        byte[] root = MerkleTree.computeRoot(payload, cheque.getMerkleLeafIndex(), cheque.getMerkleProof());
+        if (!MessageDigest.isEqual(root, cheque.getMerkleRoot())) {
+            return false;
+        }
+        return verifyRoot(root, cheque.getSignature(), scheme, publicKey);
+    }
+
+    private boolean verifyRoot(byte[] root, byte[] signature, SignatureScheme scheme, PublicKey publicKey) throws Exception {
+        ByteBuffer cacheKey = ByteBuffer.allocate(root.length + signature.length).put(root).put(signature).flip();
+        if (verifiedRoots.containsKey(cacheKey)) {
+            return true;
+        }
+        boolean valid = SignatureUtil.verify(root, signature, publicKey, scheme);
+        if (valid) {
+            if (verifiedRoots.size() >= MAX_VERIFIED_ROOTS) {
+                verifiedRoots.clear();
+            }
+            verifiedRoots.put(cacheKey, Boolean.TRUE);
+        }
+        return valid;
+    }
+
+    private ChequeSignature signSingle(byte[] payload) throws Exception {
+        SignatureScheme scheme = keyManager.getSignatureScheme();
+        String keyId = keyManager.getActiveKeyId();
+        KeyPair keyPair = keyManager.getSigningKeyPair(keyId, scheme);
+        return ChequeSignature.single(scheme, keyId, SignatureUtil.sign(payload, keyPair.getPrivate(), scheme));
+    }
+
+    private List<ChequeSignature> signTree(List<byte[]> payloads) throws Exception {
+        SignatureScheme scheme = keyManager.getSignatureScheme();
+        String keyId = keyManager.getActiveKeyId();
+        KeyPair keyPair = keyManager.getSigningKeyPair(keyId, scheme);
+
+        MerkleTree tree = MerkleTree.build(payloads);
+        byte[] root = tree.getRoot();
+        byte[] rootSignature = SignatureUtil.sign(root, keyPair.getPrivate(), scheme);
+
+        List<ChequeSignature> signatures = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            signatures.add(new ChequeSignature(scheme, keyId, rootSignature, root, tree.proof(i), i));
+        }
+        return signatures;
+    }
+
+    private CompletableFuture<ChequeSignature> submit(byte[] payload) {
+        PendingLeaf leaf = new PendingLeaf(payload, new CompletableFuture<>());
+        List<PendingLeaf> fullBatch = null;
+
+        synchronized (lock) {
+            pending.add(leaf);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drainPending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            signPending(fullBatch);
+        }
+        return leaf.future();
+    }
+
+    private void flush() {
+        List<PendingLeaf> batch;
+        synchronized (lock) {
+            batch = drainPending();
+        }
+        signPending(batch);
+    }
+
+    private List<PendingLeaf> drainPending() {
+        List<PendingLeaf> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void signPending(List<PendingLeaf> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<ChequeSignature> signatures = signTree(batch.stream().map(PendingLeaf::payload).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(signatures.get(i));
+            }
+            log.debug("Signed Merkle batch of {} cheques", batch.size());
+        } catch (Exception e) {
+            batch.forEach(leaf -> leaf.future().completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flush();
+            flusher.shutdown();
+        }
+    }
+
+    private record PendingLeaf(byte[] payload, CompletableFuture<ChequeSignature> future) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.repository.ChequeRepository;
+import com.chequepay.util.AESUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Seals cheques: builds the signed payload, encrypts it into the envelope and moves the cheque to ISSUED.
+ * <p>
+ * In {@code async} issuance mode, {@link #submit(Cheque)} stores the cheque as PENDING_SIGNATURE and hands it to a
+ * fixed pool of signing workers, which drain the queue in micro-batches so that a Merkle-mode signer signs each
+ * batch once. When the queue is full, the request thread seals the cheque itself. Cheques still pending after a
+ * restart are picked up again once the application is ready.
+ * <p>
+ * Recovery claims pending rows batch by batch with {@code FOR UPDATE SKIP LOCKED}, so nodes starting together
+ * split the leftovers instead of signing them twice. A worker that still signs a cheque another node has since
+ * recovered loses on the cheque's version and leaves the stored result alone.
+ */
+@Slf4j
+@Component
+public class ChequeSigningPipeline {
+
+    public enum Mode { SYNC, ASYNC }
+
+    public static final String PENDING_SIGNATURE = "PENDING_SIGNATURE";
+    public static final String SIGNING_FAILED = "SIGNING_FAILED";
+
+    private final ChequeRepository chequeRepository;
+    private final KeyManager keyManager;
+    private final ChequeSigner chequeSigner;
+    private final ChequeIntegrity chequeIntegrity;
+    private final TransactionTemplate transactionTemplate;
+    private final Mode mode;
+    private final int batchSize;
+
+    private final BlockingQueue<Cheque> queue;
+    private final ExecutorService workers;
+    private final Map<UUID, CompletableFuture<Void>> completions = new ConcurrentHashMap<>();
+
+    public ChequeSigningPipeline(ChequeRepository chequeRepository,
+                                 KeyManager keyManager,
+                                 ChequeSigner chequeSigner,
+                                 ChequeIntegrity chequeIntegrity,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${cheque.issue.mode:sync}") String mode,
+                                 @Value("${cheque.issue.async.workers:2}") int workerCount,
+                                 @Value("${cheque.issue.async.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${cheque.issue.async.batch-size:64}") int batchSize) {
+        this.chequeRepository = chequeRepository;
+        this.keyManager = keyManager;
+        this.chequeSigner = chequeSigner;
+        this.chequeIntegrity = chequeIntegrity;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.batchSize = batchSize;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        if (this.mode == Mode.ASYNC) {
+            this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable r) {
+                    return new Thread(r, "cheque-signer-" + (++count));
+                }
+            });
+            for (int i = 0; i < workerCount; i++) {
+                workers.submit(this::runWorker);
+            }
+        } else {
+            this.workers = null;
+        }
+    }
+
+    public boolean isAsync() {
+        return mode == Mode.ASYNC;
+    }
+
+    public static byte[] payload(Cheque cheque) {
+        String chequeData = String.format(
+                "{ \"amount\": %s, \"payer\": \"%s\", \"payee\": \"%s\", \"expiry\": \"%s\", \"nonce\": \"%s\" }",
+                cheque.getAmount(),
+                cheque.getPayerUsername(),
+                cheque.getPayeeUsername(),
+                cheque.getExpiryDate(),
+                cheque.getNonce()
+        );
+        return chequeData.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encrypts, signs and tags the cheques in place and marks them ISSUED. Several cheques are signed in one call,
+     * so in Merkle mode they share one signature.
+     */
+    public void seal(List<Cheque> cheques) throws Exception {
+        List<byte[]> payloads = new ArrayList<>(cheques.size());
+        for (Cheque cheque : cheques) {
+            String keyId = keyManager.getActiveKeyId();
+            byte[] payload = payload(cheque);
+            cheque.setEncryptedData(AESUtil.encrypt(payload, keyManager.getDataKey(keyId)));
+            cheque.setEncryptedKey(keyManager.getWrappedDataKey(keyId));
+            cheque.setKeyId(keyId);
+            payloads.add(payload);
+        }
+
+        // A lone cheque goes through sign() so that Merkle mode can still batch it with concurrent requests.
+        List<ChequeSignature> signatures = payloads.size() == 1
+                ? List.of(chequeSigner.sign(payloads.get(0)))
+                : chequeSigner.signAll(payloads);
+        for (int i = 0; i < cheques.size(); i++) {
+            Cheque cheque = cheques.get(i);
+            signatures.get(i).applyTo(cheque);
+            cheque.setIntegrityTag(chequeIntegrity.tag(cheque));
+            cheque.setStatus("ISSUED");
+        }
+    }
+
+    /**
+     * Stores the cheque as PENDING_SIGNATURE and queues it for the signing workers.
+     */
+    public Cheque submit(Cheque cheque) {
+        cheque.setStatus(PENDING_SIGNATURE);
+        Cheque saved = chequeRepository.save(cheque);
+        completions.put(saved.getId(), new CompletableFuture<>());
+
+        if (!queue.offer(saved)) {
+            log.debug("Signing queue is full, sealing cheque {} on the request thread", saved.getId());
+            signBatch(List.of(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * Returns a future that completes once the cheque has left PENDING_SIGNATURE, or null if this
+     * instance is not signing it.
+     */
+    public CompletableFuture<Void> completion(UUID chequeId) {
+        return completions.get(chequeId);
+    }
+
+    /**
+     * Signs the cheques left PENDING_SIGNATURE by a previous run. Each batch is claimed, signed and stored in one
+     * transaction, and rows claimed by another node are skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPending() {
+        int recovered = 0;
+        while (true) {
+            List<Cheque> claimed;
+            try {
+                claimed = transactionTemplate.execute(status -> {
+                    List<Cheque> batch = chequeRepository.findByStatusOrderById(PENDING_SIGNATURE, PageRequest.of(0, batchSize));
+                    if (!batch.isEmpty()) {
+                        signBatch(batch);
+                    }
+                    return batch;
+                });
+            } catch (RuntimeException e) {
+                log.error("Failed to recover pending cheques, the rest are left for the next start", e);
+                return;
+            }
+            if (claimed == null || claimed.isEmpty()) {
+                break;
+            }
+            recovered += claimed.size();
+        }
+        if (recovered > 0) {
+            log.info("Signed {} cheques left pending by a previous run", recovered);
+        }
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Cheque> batch = new ArrayList<>(batchSize);
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                signBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void signBatch(List<Cheque> batch) {
+        Exception failure = null;
+        try {
+            seal(batch);
+        } catch (Exception e) {
+            log.error("Failed to sign a batch of {} cheques", batch.size(), e);
+            batch.forEach(cheque -> cheque.setStatus(SIGNING_FAILED));
+            failure = e;
+        }
+
+        Map<UUID, Exception> storeFailures = store(batch);
+
+        for (Cheque cheque : batch) {
+            CompletableFuture<Void> completion = completions.remove(cheque.getId());
+            if (completion == null) {
+                continue;
+            }
+            Exception error = failure != null ? failure : storeFailures.get(cheque.getId());
+            if (error == null) {
+                completion.complete(null);
+            } else {
+                completion.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * Stores the batch and returns the cheques that could not be stored. If some cheque changed since it was read,
+     * the others are stored one at a time and the changed one keeps its stored state.
+     */
+    private Map<UUID, Exception> store(List<Cheque> batch) {
+        try {
+            chequeRepository.saveAll(batch);
+            return Map.of();
+        } catch (OptimisticLockingFailureException e) {
+            Map<UUID, Exception> failures = new HashMap<>();
+            for (Cheque cheque : batch) {
+                try {
+                    chequeRepository.save(cheque);
+                } catch (RuntimeException conflict) {
+                    log.warn("Cheque {} changed while it was being signed, keeping the stored version", cheque.getId());
+                    failures.put(cheque.getId(), conflict);
+                }
+            }
+            return failures;
+        } catch (RuntimeException e) {
+            log.error("Failed to store a batch of {} signed cheques", batch.size(), e);
+            Map<UUID, Exception> failures = new HashMap<>();
+            batch.forEach(cheque -> failures.put(cheque.getId(), e));
+            return failures;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (workers != null) {
+            // Cheques still queued stay PENDING_SIGNATURE and are signed by recoverPending() on the next start.
+            workers.shutdownNow();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
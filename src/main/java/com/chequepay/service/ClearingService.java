@@ -1,20 +1,22 @@
 package com.chequepay.service;
 
+import com.chequepay.dto.ChequeVerificationResult;
 import com.chequepay.entity.Account;
 import com.chequepay.entity.Cheque;
 import com.chequepay.repository.AccountRepository;
 import com.chequepay.repository.ChequeRepository;
 import com.chequepay.util.AESUtil;
-import com.chequepay.util.RSAUtil;
-import com.chequepay.util.NonceStore;
-import com.chequepay.util.SignatureUtil;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.SecretKey;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 @RequiredArgsConstructor
@@ -23,11 +25,61 @@ public class ClearingService {
     private final ChequeRepository chequeRepository;
     private final AccountRepository accountRepository;
     private final KeyManager keyManager;
+    private final ChequeSigner chequeSigner;
+    private final ChequeIntegrity chequeIntegrity;
+    private final VerificationCache verificationCache;
+    private final ReplayGuard replayGuard;
+
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    // Bounded to the number of cores: verification is CPU-bound, so more threads would only add contention.
+    private final ForkJoinPool verificationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     public void verifyCheque(UUID chequeId, String currentUser) {
         Cheque cheque = chequeRepository.findById(chequeId)
                 .orElseThrow(() -> new IllegalArgumentException("Cheque not found"));
 
+        verifyCheque(cheque, currentUser);
+    }
+
+    public List<ChequeVerificationResult> verifyCheques(List<UUID> chequeIds, String currentUser) {
+        if (chequeIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalStateException("A batch may contain at most " + MAX_BATCH_SIZE + " cheques");
+        }
+
+        Map<UUID, Cheque> cheques = new HashMap<>();
+        for (Cheque cheque : chequeRepository.findAllById(new HashSet<>(chequeIds))) {
+            cheques.put(cheque.getId(), cheque);
+        }
+
+        try {
+            return verificationPool.submit(() -> chequeIds.parallelStream()
+                    .map(id -> verifyBatchEntry(id, cheques.get(id), currentUser))
+                    .toList()
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error verifying cheques", e.getCause());
+        }
+    }
+
+    private ChequeVerificationResult verifyBatchEntry(UUID chequeId, Cheque cheque, String currentUser) {
+        if (cheque == null) {
+            return new ChequeVerificationResult(chequeId, false, "Cheque not found");
+        }
+        try {
+            verifyCheque(cheque, currentUser);
+            return new ChequeVerificationResult(chequeId, true, "Cheque verified successfully");
+        } catch (IllegalStateException | SecurityException e) {
+            return new ChequeVerificationResult(chequeId, false, e.getMessage());
+        } catch (RuntimeException e) {
+            return new ChequeVerificationResult(chequeId, false, "Error verifying cheque");
+        }
+    }
+
+    private void verifyCheque(Cheque cheque, String currentUser) {
         if (!"ISSUED".equals(cheque.getStatus())) {
             throw new IllegalStateException("Cheque is not in ISSUED status");
         }
@@ -41,15 +93,25 @@ public class ClearingService {
         }
 
         try {
-            String aesKeyBase64 = RSAUtil.decrypt(cheque.getEncryptedKey(), keyManager.getRsaKeyPair().getPrivate());
-            SecretKey aesKey = AESUtil.fromBase64(aesKeyBase64);
-            String chequeData = AESUtil.decrypt(cheque.getEncryptedData(), aesKey);
-
-            boolean valid = SignatureUtil.verify(chequeData, cheque.getSignature(), keyManager.getRsaKeyPair().getPublic());
-            if (!valid) {
-                throw new SecurityException("Invalid cheque signature");
+            // Stored cheques carry an HMAC over their immutable fields, which is far cheaper to check than
+            // decrypting the envelope and verifying the signature, and cheaper than fingerprinting the row for the
+            // cache. Untagged, older cheques take the slow path unless this exact row passed it moments ago,
+            // typically by /verify before /settle.
+            if (cheque.getIntegrityTag() != null) {
+                if (!chequeIntegrity.verify(cheque)) {
+                    throw new SecurityException("Cheque integrity check failed");
+                }
+            } else if (!verificationCache.isVerified(cheque)) {
+                SecretKey aesKey = keyManager.resolveDataKey(cheque.getKeyId(), cheque.getEncryptedKey());
+                byte[] chequeData = AESUtil.decrypt(cheque.getEncryptedData(), aesKey);
+
+                boolean valid = chequeSigner.verify(cheque, chequeData);
+                if (!valid) {
+                    throw new SecurityException("Invalid cheque signature");
+                }
+                verificationCache.markVerified(cheque);
             }
-            if (NonceStore.hasBeenUsed(cheque.getNonce())) {
+            if (replayGuard.isUsed(cheque.getNonce())) {
                 throw new SecurityException("Cheque nonce has already been used");
             }
 
@@ -60,11 +122,16 @@ public class ClearingService {
         }
     }
 
+    /**
+     * Moves the money, clears the cheque and claims its nonce in one transaction, so either all three are
+     * committed or none is. A claimed nonce is never given back once the balances have changed.
+     */
+    @Transactional
     public void settleCheque(UUID chequeId, String currentUser) {
         Cheque cheque = chequeRepository.findById(chequeId)
                 .orElseThrow(() -> new IllegalArgumentException("Cheque not found"));
 
-        verifyCheque(chequeId, currentUser);
+        verifyCheque(cheque, currentUser);
 
         try {
             Account payer = accountRepository.findByUsername(cheque.getPayerUsername())
@@ -76,6 +143,12 @@ public class ClearingService {
                 throw new IllegalStateException("Insufficient balance");
             }
 
+            // The claim is a single insert on the nonce's primary key, so two concurrent settles of the same
+            // cheque, on any node, cannot both get past it; the second waits for the first to commit or roll back.
+            if (!replayGuard.claim(cheque.getNonce(), cheque.getId(), cheque.getExpiryDate())) {
+                throw new SecurityException("Cheque nonce has already been used");
+            }
+
             payer.setBalance(payer.getBalance().subtract(cheque.getAmount()));
             payee.setBalance(payee.getBalance().add(cheque.getAmount()));
             accountRepository.save(payer);
@@ -83,7 +156,7 @@ public class ClearingService {
 
             cheque.setStatus("CLEARED");
             chequeRepository.save(cheque);
-            NonceStore.markAsUsed(cheque.getNonce());
+            verificationCache.invalidate(cheque.getId());
 
         } catch (SecurityException e) {
             throw e;
@@ -92,6 +165,11 @@ public class ClearingService {
         }
     }
 
+    @PreDestroy
+    public void shutdownVerificationPool() {
+        verificationPool.shutdown();
+    }
+
     @Scheduled(cron = "0 0 2 * * ?")
     public void expireOldCheques() {
         List<Cheque> cheques = chequeRepository.findAll();
@@ -100,6 +178,7 @@ public class ClearingService {
                     cheque.getExpiryDate().isBefore(LocalDateTime.now())) {
                 cheque.setStatus("EXPIRED");
                 chequeRepository.save(cheque);
+                verificationCache.invalidate(cheque.getId());
             }
         }
     }
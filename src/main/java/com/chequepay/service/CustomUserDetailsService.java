@@ -2,26 +2,91 @@ package com.chequepay.service;
 
 import com.chequepay.entity.User;
 import com.chequepay.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.chequepay.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads users for authentication, keeping recently loaded ones in a bounded, expiring cache so that an
+ * authenticated request does not start with a database query.
+ * <p>
+ * {@link UserCacheInvalidator} evicts a user whenever its row is written. Callers receive a copy of the cached
+ * details, because Spring Security erases the password of the principal it returns after authentication.
+ * <p>
+ * As a {@link UserDetailsPasswordService} it also receives re-hashed passwords: when a user signs in with a
+ * hash whose cost is below the current one, Spring Security hashes the password again and stores it here. The
+ * password itself is unchanged, so the user's token version is left alone and their sessions stay valid.
+ */
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final ExpiringCache<String, UserDetails> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${auth.user-cache.ttl-ms:300000}") long ttlMillis,
+                                    @Value("${auth.user-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.cache = new ExpiringCache<>(ttlMillis, maxSize);
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.get(username);
+        if (cached != null) {
+            hits.increment();
+            return org.springframework.security.core.userdetails.User.withUserDetails(cached).build();
+        }
+        misses.increment();
+
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        return org.springframework.security.core.userdetails.User
+        UserDetails details = org.springframework.security.core.userdetails.User
                 .withUsername(user.getUsername())
                 .password(user.getPassword())
                 .roles(user.getRole())
                 .build();
+        cache.put(username, details);
+        return org.springframework.security.core.userdetails.User.withUserDetails(details).build();
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evict(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new Stats(hitCount, missCount, total == 0 ? 0 : (double) hitCount / total, cache.size());
+    }
+
+    /**
+     * @param hits    lookups answered from the cache since startup
+     * @param misses  lookups that went to the database
+     * @param hitRate share of lookups answered from the cache
+     * @param size    users currently cached
+     */
+    public record Stats(long hits, long misses, double hitRate, int size) {
     }
 }
@@ -1,26 +1,369 @@
 package com.chequepay.service;
 
 import com.chequepay.util.AESUtil;
+import com.chequepay.util.HmacUtil;
 import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SelfSignedCertificate;
+import com.chequepay.util.SignatureScheme;
+import com.chequepay.util.SignatureUtil;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Holds the key ring used to encrypt and sign cheques.
+ * <p>
+ * When {@code cheque.keys.keystore-path} is set, the ring is loaded from a PKCS12 file so that a restart
+ * reuses the existing keys instead of generating RSA keys on the startup path, and cheques issued before the
+ * restart stay verifiable. Every generation of keys has a time-ordered key ID which is stamped on the cheques
+ * it protects. The next generation is prepared in the background and stored as a standby entry, so
+ * {@link #rotate()} only has to promote it. Without a keystore path the ring lives in memory only.
+ */
+@Slf4j
 @Component
-@Getter
 public class KeyManager {
 
-    private final KeyPair rsaKeyPair;
-    private final SecretKey aesKey;
+    private static final DateTimeFormatter KEY_ID_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
+    private static final String STANDBY_PREFIX = "next.";
+    private static final String RSA_SUFFIX = ".rsa";
+    private static final String ED25519_SUFFIX = ".ed25519";
+    private static final String AES_SUFFIX = ".aes";
+    private static final long RELOAD_INTERVAL_MILLIS = 5_000;
+    private static final String INTEGRITY_KEY_LABEL = "cheque-integrity-v1";
+
+    @Getter
+    private final SignatureScheme signatureScheme;
+    private final Path keystorePath;
+    private final char[] keystorePassword;
+    private final Duration maxKeyAge;
+
+    private final Map<String, KeyVersion> keys = new ConcurrentHashMap<>();
+    private volatile KeyVersion activeKey;
+    private volatile KeyVersion standbyKey;
+    private CompletableFuture<Void> standbyTask;
+    private volatile long lastReload;
+
+    private final Object ringLock = new Object();
+    private final ScheduledExecutorService keyGenerator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "key-ring-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public KeyManager(@Value("${cheque.signature.algorithm:SHA256withRSA}") String signatureAlgorithm,
+                      @Value("${cheque.keys.keystore-path:}") String keystorePath,
+                      @Value("${cheque.keys.keystore-password:changeit}") String keystorePassword,
+                      @Value("${cheque.keys.max-age-days:0}") long maxKeyAgeDays) {
+        this.signatureScheme = SignatureScheme.fromAlgorithm(signatureAlgorithm);
+        this.keystorePath = keystorePath == null || keystorePath.isBlank() ? null : Path.of(keystorePath);
+        this.keystorePassword = keystorePassword.toCharArray();
+        this.maxKeyAge = Duration.ofDays(maxKeyAgeDays);
 
-    public KeyManager() {
         try {
-            this.rsaKeyPair = RSAUtil.generateKeyPair(2048);
-            this.aesKey = AESUtil.generateAESKey();
+            synchronized (ringLock) {
+                standbyKey = reload();
+                if (activeKey == null) {
+                    addToRing(generateKeyVersion());
+                    persist();
+                }
+            }
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize KeyManager", e);
         }
+        log.info("Key ring ready with {} key(s), active key {}", keys.size(), activeKey.getKeyId());
+
+        prepareStandby();
+        if (!maxKeyAge.isZero()) {
+            keyGenerator.scheduleWithFixedDelay(this::rotateIfDue, 1, 1, TimeUnit.HOURS);
+        }
+    }
+
+    public String getActiveKeyId() {
+        return activeKey.getKeyId();
+    }
+
+    /**
+     * Returns the signing key pair of the given key generation, or of the active one when {@code keyId}
+     * is null (cheques signed before key IDs were recorded).
+     */
+    public KeyPair getSigningKeyPair(String keyId, SignatureScheme scheme) {
+        KeyVersion key = keyId == null ? activeKey : getKeyVersion(keyId);
+        return key.getSigningKeyPair(scheme);
+    }
+
+    public SecretKey getDataKey(String keyId) {
+        return getKeyVersion(keyId).getDataKey();
+    }
+
+    public byte[] getWrappedDataKey(String keyId) {
+        return getKeyVersion(keyId).getWrappedDataKey();
+    }
+
+    public SecretKey getIntegrityKey(String keyId) {
+        return getKeyVersion(keyId).getIntegrityKey();
+    }
+
+    /**
+     * Returns the data key for a cheque envelope. Keys known by ID are served from the ring;
+     * cheques issued before key IDs existed fall back to unwrapping {@code wrappedKey} with RSA.
+     * Those cheques wrapped the Base64 text of their key and do not say which generation wrapped it, so every
+     * RSA key in the ring is tried, newest first.
+     */
+    public SecretKey resolveDataKey(String keyId, byte[] wrappedKey) throws Exception {
+        if (keyId != null) {
+            return getDataKey(keyId);
+        }
+        List<KeyVersion> ring = new ArrayList<>(keys.values());
+        ring.sort(Comparator.comparing(KeyVersion::getKeyId).reversed());
+        GeneralSecurityException failure = null;
+        for (KeyVersion key : ring) {
+            byte[] keyText;
+            try {
+                keyText = RSAUtil.decrypt(wrappedKey, key.getRsaKeyPair().getPrivate());
+            } catch (GeneralSecurityException e) {
+                failure = e;
+                continue;
+            }
+            return AESUtil.fromBase64(new String(keyText, StandardCharsets.US_ASCII));
+        }
+        throw new IllegalStateException("No key in the ring unwraps this cheque's data key", failure);
+    }
+
+    /**
+     * Promotes the standby key to active and starts preparing the next one. Keys of earlier generations
+     * stay in the ring for verifying the cheques they protect.
+     */
+    public String rotate() {
+        try {
+            synchronized (ringLock) {
+                KeyVersion onDisk = reload();
+                KeyVersion next = onDisk != null ? onDisk : standbyKey;
+                if (next == null || next.getKeyId().compareTo(activeKey.getKeyId()) <= 0) {
+                    next = generateKeyVersion();
+                }
+                standbyKey = null;
+                addToRing(next);
+                persist();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to rotate keys", e);
+        }
+        log.info("Rotated cheque keys, active key is now {}", activeKey.getKeyId());
+        prepareStandby();
+        return activeKey.getKeyId();
+    }
+
+    private void rotateIfDue() {
+        try {
+            if (Duration.between(activeKey.getCreatedAt(), Instant.now()).compareTo(maxKeyAge) >= 0) {
+                rotate();
+            }
+        } catch (Exception e) {
+            log.error("Scheduled key rotation failed", e);
+        }
+    }
+
+    private KeyVersion getKeyVersion(String keyId) {
+        KeyVersion key = keys.get(keyId);
+        if (key == null && keystorePath != null && System.currentTimeMillis() - lastReload > RELOAD_INTERVAL_MILLIS) {
+            // Another instance sharing the keystore may have rotated since we last read it.
+            try {
+                synchronized (ringLock) {
+                    reload();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to reload key ring from {}", keystorePath, e);
+            }
+            key = keys.get(keyId);
+        }
+        if (key == null) {
+            throw new IllegalStateException("Unknown key: " + keyId);
+        }
+        return key;
+    }
+
+    private void prepareStandby() {
+        synchronized (ringLock) {
+            if (standbyKey != null || (standbyTask != null && !standbyTask.isDone())) {
+                return;
+            }
+            standbyTask = CompletableFuture.runAsync(this::generateStandby, keyGenerator);
+        }
+    }
+
+    private void generateStandby() {
+        try {
+            KeyVersion key = generateKeyVersion();
+            synchronized (ringLock) {
+                KeyVersion onDisk = reload();
+                standbyKey = onDisk != null ? onDisk : key;
+                persist();
+            }
+            log.debug("Standby key {} is ready", standbyKey.getKeyId());
+        } catch (Exception e) {
+            log.warn("Failed to prepare standby key", e);
+        }
+    }
+
+    private void addToRing(KeyVersion key) {
+        keys.put(key.getKeyId(), key);
+        if (activeKey == null || key.getKeyId().compareTo(activeKey.getKeyId()) > 0) {
+            activeKey = key;
+        }
+    }
+
+    private KeyVersion generateKeyVersion() throws Exception {
+        Instant createdAt = Instant.now();
+        byte[] suffix = new byte[2];
+        new SecureRandom().nextBytes(suffix);
+        String keyId = "k" + KEY_ID_TIME.format(createdAt) + "-" + HexFormat.of().formatHex(suffix);
+
+        KeyPair rsaKeyPair = RSAUtil.generateKeyPair(2048);
+        KeyPair ed25519KeyPair = SignatureUtil.generateKeyPair(SignatureScheme.ED25519);
+        SecretKey dataKey = AESUtil.generateAESKey();
+        return newKeyVersion(keyId, createdAt, rsaKeyPair, ed25519KeyPair, dataKey);
+    }
+
+    // Data keys are wrapped with RSA once per generation, so issuing a cheque never needs an RSA operation.
+    // The integrity key is derived from the data key, so it needs no keystore entry of its own.
+    private static KeyVersion newKeyVersion(String keyId, Instant createdAt, KeyPair rsaKeyPair,
+                                            KeyPair ed25519KeyPair, SecretKey dataKey) throws Exception {
+        byte[] wrapped = RSAUtil.encrypt(dataKey.getEncoded(), rsaKeyPair.getPublic());
+        SecretKey integrityKey = HmacUtil.deriveKey(dataKey, INTEGRITY_KEY_LABEL);
+        return new KeyVersion(keyId, createdAt, rsaKeyPair, ed25519KeyPair, dataKey, wrapped, integrityKey);
+    }
+
+    /**
+     * Merges the keys stored on disk into the ring and returns the standby key stored on disk, if any.
+     * Callers prefer that standby over their own so that instances sharing the keystore promote the same key.
+     */
+    private KeyVersion reload() throws Exception {
+        lastReload = System.currentTimeMillis();
+        if (keystorePath == null || !Files.exists(keystorePath)) {
+            return null;
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystorePath)) {
+            keyStore.load(in, keystorePassword);
+        }
+
+        Map<String, String> entries = new TreeMap<>();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (alias.endsWith(AES_SUFFIX)) {
+                String prefix = alias.substring(0, alias.length() - AES_SUFFIX.length());
+                entries.put(prefix, prefix.startsWith(STANDBY_PREFIX) ? prefix.substring(STANDBY_PREFIX.length()) : prefix);
+            }
+        }
+
+        KeyVersion standby = null;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String prefix = entry.getKey();
+            String keyId = entry.getValue();
+            if (prefix.startsWith(STANDBY_PREFIX)) {
+                if (!keys.containsKey(keyId)) {
+                    standby = standbyKey != null && standbyKey.getKeyId().equals(keyId)
+                            ? standbyKey : readKeyVersion(keyStore, prefix, keyId);
+                }
+            } else if (!keys.containsKey(keyId)) {
+                addToRing(readKeyVersion(keyStore, prefix, keyId));
+            }
+        }
+        return standby;
+    }
+
+    private KeyVersion readKeyVersion(KeyStore keyStore, String prefix, String keyId) throws Exception {
+        KeyPair rsaKeyPair = new KeyPair(keyStore.getCertificate(prefix + RSA_SUFFIX).getPublicKey(),
+                (PrivateKey) keyStore.getKey(prefix + RSA_SUFFIX, keystorePassword));
+        KeyPair ed25519KeyPair = new KeyPair(keyStore.getCertificate(prefix + ED25519_SUFFIX).getPublicKey(),
+                (PrivateKey) keyStore.getKey(prefix + ED25519_SUFFIX, keystorePassword));
+        SecretKey dataKey = AESUtil.fromBytes(keyStore.getKey(prefix + AES_SUFFIX, keystorePassword).getEncoded());
+        Instant createdAt = KEY_ID_TIME.parse(keyId.substring(1, keyId.indexOf('-')), Instant::from);
+        return newKeyVersion(keyId, createdAt, rsaKeyPair, ed25519KeyPair, dataKey);
+    }
+
+    /**
+     * Writes the ring and the standby key to the keystore. The file is replaced atomically under an
+     * exclusive lock after merging in the keys other instances wrote.
+     */
+    private void persist() throws Exception {
+        if (keystorePath == null) {
+            return;
+        }
+        Path directory = keystorePath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path lockFile = keystorePath.resolveSibling(keystorePath.getFileName() + ".lock");
+
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            reload();
+
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, keystorePassword);
+            for (KeyVersion key : keys.values()) {
+                writeKeyVersion(keyStore, key.getKeyId(), key);
+            }
+            KeyVersion standby = standbyKey;
+            if (standby != null && !keys.containsKey(standby.getKeyId())) {
+                writeKeyVersion(keyStore, STANDBY_PREFIX + standby.getKeyId(), standby);
+            }
+
+            Path temp = Files.createTempFile(directory, keystorePath.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                keyStore.store(out, keystorePassword);
+            }
+            Files.move(temp, keystorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void writeKeyVersion(KeyStore keyStore, String prefix, KeyVersion key) throws Exception {
+        KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(keystorePassword);
+        keyStore.setEntry(prefix + RSA_SUFFIX, new KeyStore.PrivateKeyEntry(key.getRsaKeyPair().getPrivate(),
+                new Certificate[]{SelfSignedCertificate.generate(key.getKeyId(), key.getRsaKeyPair(), SignatureScheme.RSA_SHA256)}),
+                protection);
+        keyStore.setEntry(prefix + ED25519_SUFFIX, new KeyStore.PrivateKeyEntry(key.getEd25519KeyPair().getPrivate(),
+                new Certificate[]{SelfSignedCertificate.generate(key.getKeyId(), key.getEd25519KeyPair(), SignatureScheme.ED25519)}),
+                protection);
+        keyStore.setEntry(prefix + AES_SUFFIX, new KeyStore.SecretKeyEntry(key.getDataKey()), protection);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keyGenerator.shutdownNow();
     }
 }
@@ -0,0 +1,30 @@
+package com.chequepay.service;
+
+import com.chequepay.util.SignatureScheme;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.time.Instant;
+
+/**
+ * One generation of cheque keys in the key ring. Cheques record the ID of the generation that
+ * encrypted and signed them, so older cheques stay verifiable after a rotation.
+ */
+@Getter
+@AllArgsConstructor
+public class KeyVersion {
+
+    private final String keyId;
+    private final Instant createdAt;
+    private final KeyPair rsaKeyPair;
+    private final KeyPair ed25519KeyPair;
+    private final SecretKey dataKey;
+    private final byte[] wrappedDataKey;
+    private final SecretKey integrityKey;
+
+    public KeyPair getSigningKeyPair(SignatureScheme scheme) {
+        return scheme == SignatureScheme.ED25519 ? ed25519KeyPair : rsaKeyPair;
+    }
+}
@@ -0,0 +1,174 @@
+package com.chequepay.service;
+
+import com.chequepay.repository.UsedNonceRepository;
+import com.chequepay.util.BloomFilter;
+import com.chequepay.util.NonceStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster-wide replay protection for cheque nonces.
+ * <p>
+ * The {@code used_nonces} table is the source of truth: a nonce is claimed by inserting its row, and the
+ * primary key guarantees that only one node can ever do so. Lookups go through three layers:
+ * <ol>
+ *     <li>{@link NonceStore}, the exact set of nonces this node claimed, answers "used" without I/O;</li>
+ *     <li>a Bloom filter, rebuilt from the table at startup and topped up with rows written by other nodes,
+ *     answers "never used" without I/O for almost every fresh cheque;</li>
+ *     <li>only Bloom filter hits fall through to a primary-key lookup.</li>
+ * </ol>
+ * The lookup is advisory: a nonce claimed on another node since the last top-up can look unused, but only
+ * {@link #claim} moves money and it is decided by the database.
+ */
+@Slf4j
+@Service
+public class ReplayGuard {
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    private final UsedNonceRepository usedNonceRepository;
+    private final long expectedNonces;
+    private final double falsePositiveRate;
+    private final long refreshMillis;
+
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime refreshedUpTo = LocalDateTime.now();
+    private ScheduledExecutorService refresher;
+
+    public ReplayGuard(UsedNonceRepository usedNonceRepository,
+                       @Value("${cheque.replay.bloom.expected-nonces:10000000}") long expectedNonces,
+                       @Value("${cheque.replay.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                       @Value("${cheque.replay.refresh-ms:5000}") long refreshMillis) {
+        this.usedNonceRepository = usedNonceRepository;
+        this.expectedNonces = expectedNonces;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshMillis = refreshMillis;
+        this.filter = new BloomFilter(expectedNonces, falsePositiveRate);
+    }
+
+    public boolean isUsed(String nonce) {
+        if (NonceStore.hasBeenUsed(nonce)) {
+            return true;
+        }
+        if (!filter.mightContain(nonce)) {
+            return false;
+        }
+        return usedNonceRepository.existsById(nonce);
+    }
+
+    /**
+     * Records the nonce as used. Returns false if any node has already claimed it. Inside a transaction the claim
+     * commits or rolls back with it, and a rollback also forgets the nonce on this node.
+     */
+    public boolean claim(String nonce, UUID chequeId, LocalDateTime expiresAt) {
+        try {
+            usedNonceRepository.insertNonce(nonce, chequeId, LocalDateTime.now(), expiresAt);
+        } catch (DataIntegrityViolationException e) {
+            filter.put(nonce);
+            NonceStore.markAsUsed(nonce, expiresAt);
+            return false;
+        }
+        filter.put(nonce);
+        NonceStore.markAsUsed(nonce, expiresAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The Bloom filter keeps the entry, which only costs one database lookup the next time it is checked.
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        NonceStore.release(nonce);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replay-guard-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        refresher.scheduleWithFixedDelay(this::purgeExpired, 1, 60, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Replaces the Bloom filter with one built from every row in the table, sized for at least twice the
+     * current row count so it stays within its false-positive target as the table grows.
+     */
+    public void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long rows = usedNonceRepository.count();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedNonces, rows * 2), falsePositiveRate);
+
+        String after = "";
+        List<String> page;
+        do {
+            page = usedNonceRepository.findNoncesAfter(after, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            page.forEach(rebuilt::put);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        filter = rebuilt;
+        refreshedUpTo = startedAt;
+        log.info("Rebuilt nonce Bloom filter from {} used nonces ({} bits)", rebuilt.insertions(), rebuilt.bitSize());
+    }
+
+    private void refresh() {
+        try {
+            // Overlap the window so rows written by a node whose clock runs slightly behind are not missed.
+            LocalDateTime now = LocalDateTime.now();
+            BloomFilter current = filter;
+            usedNonceRepository.findNoncesUsedSince(refreshedUpTo.minus(REFRESH_OVERLAP)).forEach(current::put);
+            refreshedUpTo = now;
+
+            if (current.insertions() > current.expectedInsertions()) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh nonce Bloom filter", e);
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            // Cheques are rejected as expired before their nonce is checked, so expired rows can go.
+            int purged = usedNonceRepository.deleteExpired(LocalDateTime.now().minusDays(1));
+            if (purged > 0) {
+                log.info("Purged {} expired nonces", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired nonces", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.RevokedToken;
+import com.chequepay.entity.User;
+import com.chequepay.repository.RevokedTokenRepository;
+import com.chequepay.repository.UserRepository;
+import com.chequepay.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes logout real: revoked token ids are written to the {@code revoked_tokens} table and loaded into
+ * {@link JwtUtil}, where the authentication filter checks them in memory.
+ * <p>
+ * Revoking all of a user's tokens raises the token version stored on the user's row instead, and {@link JwtUtil}
+ * is told the new minimum.
+ * <p>
+ * At startup every revocation whose token has not yet expired is loaded back, along with every raised token
+ * version, and rows written by other nodes are picked up every few seconds. Rows for expired tokens are purged,
+ * so the table is bounded by the number of live tokens just like the in-memory set.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final long refreshMillis;
+
+    private volatile LocalDateTime refreshedUpTo = LocalDateTime.now();
+    private ScheduledExecutorService refresher;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  UserRepository userRepository,
+                                  JwtUtil jwtUtil,
+                                  @Value("${jwt.revocation.refresh-ms:5000}") long refreshMillis) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * Revokes the token the claims belong to. Tokens issued before ids were added cannot be told apart, so for
+     * those every token of the user is revoked instead.
+     */
+    public void revoke(Claims claims) {
+        if (claims.getId() == null) {
+            revokeAll(claims.getSubject());
+            return;
+        }
+        jwtUtil.revoke(claims.getId(), claims.getExpiration().toInstant());
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(claims.getId())
+                .username(claims.getSubject())
+                .revokedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()))
+                .build());
+    }
+
+    /**
+     * Revokes every token issued to the user so far, on every node: this one at once, the others at their next
+     * refresh.
+     */
+    public void revokeAll(String username) {
+        userRepository.findByUsername(username).ifPresent(user -> {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            user.setTokensRevokedAt(LocalDateTime.now());
+            userRepository.save(user);
+            apply(user);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        revokedTokenRepository.findByExpiresAtAfter(startedAt).forEach(this::apply);
+        userRepository.findByTokenVersionGreaterThan(0).forEach(this::apply);
+        refreshedUpTo = startedAt;
+
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        refresher.scheduleWithFixedDelay(this::purgeExpired, 1, 60, TimeUnit.MINUTES);
+    }
+
+    private void refresh() {
+        try {
+            // Overlap the window so rows written by a node whose clock runs slightly behind are not missed.
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime since = refreshedUpTo.minus(REFRESH_OVERLAP);
+            revokedTokenRepository.findByRevokedAtGreaterThanEqual(since).forEach(this::apply);
+            userRepository.findByTokensRevokedAtGreaterThanEqual(since).forEach(this::apply);
+            refreshedUpTo = now;
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh revoked tokens", e);
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            int purged = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+            if (purged > 0) {
+                log.info("Purged {} revoked tokens that have expired", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge revoked tokens", e);
+        }
+    }
+
+    private void apply(RevokedToken token) {
+        jwtUtil.revoke(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void apply(User user) {
+        jwtUtil.revokeTokensBefore(user.getUsername(), user.getTokenVersion());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -80,10 +81,15 @@ public class TransferService {
     private String buildPayload(Cheque cheque) {
         return "{"
                 + "\"chequeId\":\"" + cheque.getId() + "\","
-                + "\"encryptedKey\":\"" + cheque.getEncryptedKey() + "\","
-                + "\"encryptedData\":\"" + cheque.getEncryptedData() + "\","
-                + "\"signature\":\"" + cheque.getSignature() + "\","
+                + "\"encryptedKey\":\"" + toBase64(cheque.getEncryptedKey()) + "\","
+                + "\"encryptedData\":\"" + toBase64(cheque.getEncryptedData()) + "\","
+                + "\"signature\":\"" + toBase64(cheque.getSignature()) + "\","
                 + "\"nonce\":\"" + cheque.getNonce() + "\""
                 + "}";
     }
+
+    // Envelope fields are stored as raw bytes; Base64 is only produced here, at the API edge.
+    private static String toBase64(byte[] bytes) {
+        return bytes == null ? null : Base64.getEncoder().encodeToString(bytes);
+    }
 }
@@ -0,0 +1,65 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.User;
+import com.chequepay.util.JwtUtil;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that evicts a user from the {@link CustomUserDetailsService} cache whenever its row is
+ * inserted, updated or deleted. An update also hands the stored token version to {@link JwtUtil}, so a revocation
+ * saved on this node applies here at once, and a delete rejects every token of the user on this node until a user
+ * with the same name is created again.
+ * <p>
+ * The entry is evicted immediately and again once the transaction completes, so a lookup that races the
+ * commit cannot leave the old row cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheInvalidator {
+
+    // Looked up on use: Hibernate creates this listener while the repositories the service needs are still being built.
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+    private final ObjectProvider<JwtUtil> jwtUtil;
+
+    @PostPersist
+    public void userCreated(User user) {
+        jwtUtil.ifAvailable(jwt -> jwt.forgetTokenVersions(user.getUsername()));
+        evict(user);
+    }
+
+    @PostUpdate
+    public void userUpdated(User user) {
+        jwtUtil.ifAvailable(jwt -> jwt.revokeTokensBefore(user.getUsername(), user.getTokenVersion()));
+        evict(user);
+    }
+
+    @PostRemove
+    public void userRemoved(User user) {
+        jwtUtil.ifAvailable(jwt -> jwt.revokeTokensBefore(user.getUsername(), Integer.MAX_VALUE));
+        evict(user);
+    }
+
+    private void evict(User user) {
+        CustomUserDetailsService service = userDetailsService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        String username = user.getUsername();
+        service.evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    service.evict(username);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.chequepay.service;
+
+import com.chequepay.config.BoundedPasswordEncoder;
+import com.chequepay.dto.RegisterRequest;
+import com.chequepay.dto.UserImportReport;
+import com.chequepay.entity.Account;
+import com.chequepay.entity.User;
+import com.chequepay.repository.AccountRepository;
+import com.chequepay.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Onboards users in bulk from a CSV or NDJSON stream, applying the same rules as {@link AuthService#register}.
+ * <p>
+ * The file is read one line at a time and processed in chunks, so only one chunk of rows is held at a time, and
+ * each chunk is detached once written so that a persistence context opened for the request does not keep it.
+ * What still grows with the file are the usernames and emails seen so far, which catch duplicates within the
+ * file, and the rejected rows listed in the report. For each chunk, duplicates are found with two set queries
+ * rather than a query per row, passwords are hashed in parallel, and users and accounts are written in one
+ * transaction with JDBC batching. If a chunk hits a constraint violation, because another writer registered the
+ * same name in the meantime, its rows are retried one by one so that only the offending rows are reported.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> COLUMNS = List.of("username", "email", "password", "realname", "phoneNumber");
+
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final EntityManager entityManager;
+    private final PasswordEncoder hashEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int hashThreads;
+
+    public UserImportService(UserRepository userRepository,
+                             AccountRepository accountRepository,
+                             EntityManager entityManager,
+                             PasswordEncoder passwordEncoder,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${user.import.chunk-size:1000}") int chunkSize,
+                             @Value("${user.import.hash-threads:0}") int hashThreads) {
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.entityManager = entityManager;
+        // Hash on the import's own threads so a large file cannot fill the queue that interactive logins use.
+        this.hashEncoder = passwordEncoder instanceof BoundedPasswordEncoder bounded ? bounded.direct() : passwordEncoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.hashThreads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    public UserImportReport importUsers(InputStream input, Format format) throws IOException {
+        ImportRun run = new ImportRun();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService hashPool = Executors.newFixedThreadPool(hashThreads, r -> {
+            Thread thread = new Thread(r, "user-import-hash-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String text;
+            int line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && header == null) {
+                    header = parseHeader(text);
+                    continue;
+                }
+
+                run.total++;
+                RegisterRequest request;
+                try {
+                    request = format == Format.CSV ? parseCsv(text, header) : parseJson(text);
+                    validate(request);
+                } catch (IllegalArgumentException e) {
+                    run.fail(line, null, e.getMessage());
+                    continue;
+                }
+                if (run.seenUsernames.contains(request.getUsername())) {
+                    run.fail(line, request.getUsername(), "Duplicate username in file");
+                    continue;
+                }
+                if (run.seenEmails.contains(request.getEmail())) {
+                    run.fail(line, request.getUsername(), "Duplicate email in file");
+                    continue;
+                }
+                run.seenUsernames.add(request.getUsername());
+                run.seenEmails.add(request.getEmail());
+
+                chunk.add(new Row(line, request));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, run, hashPool);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, run, hashPool);
+            }
+        } finally {
+            hashPool.shutdownNow();
+        }
+
+        log.info("User import finished: {} rows, {} imported, {} failed", run.total, run.imported, run.errors.size());
+        return new UserImportReport(run.total, run.imported, run.errors.size(), run.errors);
+    }
+
+    private void writeChunk(List<Row> chunk, ImportRun run, ExecutorService hashPool) {
+        Set<String> existingUsernames = userRepository.findExistingUsernames(
+                chunk.stream().map(row -> row.request().getUsername()).toList());
+        Set<String> existingEmails = userRepository.findExistingEmails(
+                chunk.stream().map(row -> row.request().getEmail()).toList());
+
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existingUsernames.contains(row.request().getUsername())) {
+                run.fail(row.line(), row.request().getUsername(), "Username already exists");
+            } else if (existingEmails.contains(row.request().getEmail())) {
+                run.fail(row.line(), row.request().getUsername(), "Email already registered");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = hashAll(accepted, hashPool);
+        List<User> users = new ArrayList<>(accepted.size());
+        List<Account> accounts = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            RegisterRequest request = accepted.get(i).request();
+            users.add(toUser(request, hashes.get(i)));
+            accounts.add(toAccount(request));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.saveAll(users);
+                accountRepository.saveAll(accounts);
+                detach(users, accounts);
+            });
+            run.imported += accepted.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Chunk of {} users conflicted with concurrent registrations, retrying row by row", accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                writeSingle(accepted.get(i), users.get(i), accounts.get(i), run);
+            }
+        }
+    }
+
+    private void writeSingle(Row row, User user, Account account, ImportRun run) {
+        user.setId(null);
+        account.setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.save(user);
+                accountRepository.save(account);
+                detach(List.of(user), List.of(account));
+            });
+            run.imported++;
+        } catch (DataIntegrityViolationException e) {
+            run.fail(row.line(), row.request().getUsername(), "Username or email already exists");
+        }
+    }
+
+    /**
+     * Writes out and detaches the rows saved in the current transaction. Under open-session-in-view that
+     * transaction runs in the request's persistence context, which would otherwise keep every imported row.
+     */
+    private void detach(List<User> users, List<Account> accounts) {
+        entityManager.flush();
+        users.forEach(entityManager::detach);
+        accounts.forEach(entityManager::detach);
+    }
+
+    private List<String> hashAll(List<Row> rows, ExecutorService hashPool) {
+        List<Callable<String>> tasks = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            String password = row.request().getPassword();
+            tasks.add(() -> hashEncoder.encode(password));
+        }
+        try {
+            List<String> hashes = new ArrayList<>(rows.size());
+            for (Future<String> future : hashPool.invokeAll(tasks)) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static User toUser(RegisterRequest request, String passwordHash) {
+        return User.builder()
+                .username(request.getUsername())
+                .email(request.getEmail())
+                .password(passwordHash)
+                .realname(request.getRealname())
+                .phoneNumber(request.getPhoneNumber())
+                .role("USER")
+                .build();
+    }
+
+    private static Account toAccount(RegisterRequest request) {
+        return Account.builder()
+                .username(request.getUsername())
+                .realname(request.getRealname())
+                .balance(AuthService.INITIAL_BALANCE)
+                .build();
+    }
+
+    private static void validate(RegisterRequest request) {
+        if (isBlank(request.getUsername())) {
+            throw new IllegalArgumentException("Missing username");
+        }
+        if (isBlank(request.getEmail())) {
+            throw new IllegalArgumentException("Missing email");
+        }
+        if (isBlank(request.getPassword())) {
+            throw new IllegalArgumentException("Missing password");
+        }
+        if (request.getRealname() == null || request.getPhoneNumber() == null) {
+            throw new IllegalArgumentException("Missing real name or phone number");
+        }
+        AuthService.validateProfile(request);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Map<String, Integer> parseHeader(String text) {
+        List<String> names = splitCsv(text);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        if (!header.keySet().containsAll(COLUMNS)) {
+            throw new IllegalArgumentException("CSV header must contain the columns " + String.join(",", COLUMNS));
+        }
+        return header;
+    }
+
+    private static RegisterRequest parseCsv(String text, Map<String, Integer> header) {
+        List<String> fields = splitCsv(text);
+        if (fields.size() < header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + fields.size());
+        }
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(fields.get(header.get("username")));
+        request.setEmail(fields.get(header.get("email")));
+        request.setPassword(fields.get(header.get("password")));
+        request.setRealname(fields.get(header.get("realname")));
+        request.setPhoneNumber(fields.get(header.get("phoneNumber")));
+        return request;
+    }
+
+    private RegisterRequest parseJson(String text) {
+        try {
+            return objectMapper.readValue(text, RegisterRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON row");
+        }
+    }
+
+    /**
+     * Splits one CSV record. Fields may be quoted, with {@code ""} standing for a literal quote; quoted fields
+     * cannot span lines.
+     */
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Row(int line, RegisterRequest request) {
+    }
+
+    private static final class ImportRun {
+        private final Set<String> seenUsernames = new HashSet<>();
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<UserImportReport.RowError> errors = new ArrayList<>();
+        private int total;
+        private int imported;
+
+        void fail(int line, String username, String message) {
+            errors.add(new UserImportReport.RowError(line, username, message));
+        }
+    }
+}
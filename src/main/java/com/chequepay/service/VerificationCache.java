@@ -0,0 +1,86 @@
+package com.chequepay.service;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.util.CryptoEngine;
+import com.chequepay.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * Remembers, for a short time, which untagged cheques passed signature verification, so that a settle straight
+ * after a verify does not decrypt the envelope and check the signature again. Cheques with an integrity tag do
+ * not use it: their HMAC check costs less than computing the fingerprint below.
+ * <p>
+ * An entry only counts for the exact row it was recorded with: the fingerprint covers the status and every
+ * input of the verification, so a changed row misses the cache even before {@link #invalidate(UUID)} is
+ * called for it.
+ */
+@Component
+public class VerificationCache {
+
+    private final ExpiringCache<UUID, byte[]> verified;
+
+    public VerificationCache(@Value("${cheque.verification.cache.ttl-ms:30000}") long ttlMillis,
+                             @Value("${cheque.verification.cache.max-size:10000}") int maxSize) {
+        this.verified = new ExpiringCache<>(ttlMillis, maxSize);
+    }
+
+    public boolean isVerified(Cheque cheque) {
+        byte[] fingerprint = verified.get(cheque.getId());
+        try {
+            return fingerprint != null && MessageDigest.isEqual(fingerprint, fingerprint(cheque));
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    public void markVerified(Cheque cheque) {
+        try {
+            verified.put(cheque.getId(), fingerprint(cheque));
+        } catch (GeneralSecurityException e) {
+            // Not caching only costs a repeated verification.
+        }
+    }
+
+    public void invalidate(UUID chequeId) {
+        verified.invalidate(chequeId);
+    }
+
+    private static byte[] fingerprint(Cheque cheque) throws GeneralSecurityException {
+        MessageDigest digest = CryptoEngine.digest("SHA-256");
+        update(digest, cheque.getEncryptedData());
+        update(digest, cheque.getSignature());
+        update(digest, cheque.getIntegrityTag());
+        update(digest, cheque.getMerkleRoot());
+        update(digest, cheque.getMerkleProof());
+        update(digest, cheque.getMerkleLeafIndex() == null ? null : cheque.getMerkleLeafIndex().toString());
+        update(digest, cheque.getSignatureAlgorithm());
+        update(digest, cheque.getSigningKeyId());
+        update(digest, cheque.getStatus());
+        update(digest, cheque.getNonce());
+        update(digest, cheque.getKeyId());
+        update(digest, cheque.getPayerUsername());
+        update(digest, cheque.getPayeeUsername());
+        update(digest, cheque.getAmount() == null ? null : cheque.getAmount().toPlainString());
+        update(digest, cheque.getExpiryDate() == null ? null : cheque.getExpiryDate().toString());
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        update(digest, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest digest, byte[] value) {
+        int length = value == null ? -1 : value.length;
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(length).array());
+        if (value != null) {
+            digest.update(value);
+        }
+    }
+}
@@ -6,12 +6,12 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
-import java.security.SecureRandom;
 
 public class AESUtil {
     private static final int AES_KEY_SIZE = 256; // AES-256
     private static final int GCM_TAG_LENGTH = 128; // bits
     private static final int IV_SIZE = 12; // 96 bits recommended
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
 
     public static SecretKey generateAESKey() throws Exception {
         KeyGenerator keyGen = KeyGenerator.getInstance("AES");
@@ -20,42 +20,44 @@ public class AESUtil {
     }
 
     public static String encrypt(String plainText, SecretKey key) throws Exception {
-        byte[] iv = new byte[IV_SIZE];
-        SecureRandom random = new SecureRandom();
-        random.nextBytes(iv);
+        return Base64.getEncoder().encodeToString(encrypt(plainText.getBytes(), key));
+    }
+
+    /**
+     * Encrypts {@code plainText} and returns {@code IV || ciphertext || tag}.
+     */
+    public static byte[] encrypt(byte[] plainText, SecretKey key) throws Exception {
+        byte[] iv = CryptoEngine.nextIv(IV_SIZE);
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        Cipher cipher = CryptoEngine.cipher(TRANSFORMATION);
         GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
         cipher.init(Cipher.ENCRYPT_MODE, key, spec);
 
-        byte[] cipherText = cipher.doFinal(plainText.getBytes());
-        byte[] encrypted = new byte[iv.length + cipherText.length];
-        System.arraycopy(iv, 0, encrypted, 0, iv.length);
-        System.arraycopy(cipherText, 0, encrypted, iv.length, cipherText.length);
-
-        return Base64.getEncoder().encodeToString(encrypted);
+        // Write the ciphertext straight after the IV instead of copying it out of a separate array.
+        byte[] encrypted = new byte[IV_SIZE + cipher.getOutputSize(plainText.length)];
+        System.arraycopy(iv, 0, encrypted, 0, IV_SIZE);
+        cipher.doFinal(plainText, 0, plainText.length, encrypted, IV_SIZE);
+        return encrypted;
     }
 
     public static String decrypt(String encryptedText, SecretKey key) throws Exception {
-        byte[] decoded = Base64.getDecoder().decode(encryptedText);
-
-        byte[] iv = new byte[IV_SIZE];
-        System.arraycopy(decoded, 0, iv, 0, iv.length);
+        return new String(decrypt(Base64.getDecoder().decode(encryptedText), key));
+    }
 
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
+    public static byte[] decrypt(byte[] encrypted, SecretKey key) throws Exception {
+        Cipher cipher = CryptoEngine.cipher(TRANSFORMATION);
+        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, encrypted, 0, IV_SIZE);
         cipher.init(Cipher.DECRYPT_MODE, key, spec);
 
-        byte[] cipherText = new byte[decoded.length - iv.length];
-        System.arraycopy(decoded, iv.length, cipherText, 0, cipherText.length);
-
-        byte[] plainText = cipher.doFinal(cipherText);
-        return new String(plainText);
+        return cipher.doFinal(encrypted, IV_SIZE, encrypted.length - IV_SIZE);
     }
 
     public static SecretKey fromBase64(String base64Key) {
-        byte[] decoded = Base64.getDecoder().decode(base64Key);
-        return new SecretKeySpec(decoded, 0, decoded.length, "AES");
+        return fromBytes(Base64.getDecoder().decode(base64Key));
+    }
+
+    public static SecretKey fromBytes(byte[] encodedKey) {
+        return new SecretKeySpec(encodedKey, 0, encodedKey.length, "AES");
     }
 
     public static String toBase64(SecretKey key) {
@@ -0,0 +1,107 @@
+package com.chequepay.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * <p>
+ * {@link #mightContain(String)} never returns false for a value that was added, and returns true for a value
+ * that was not added with roughly the configured false-positive probability, as long as no more than the expected
+ * number of values is inserted. Bits are set with a CAS loop, so adds and lookups need no lock. Bit positions
+ * use double hashing over a 128-bit hash, as described by Kirsch and Mitzenmacher.
+ */
+public class BloomFilter {
+
+    private final long expectedInsertions;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        this.expectedInsertions = n;
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds the value and returns true if that changed the filter. Re-adding a value changes nothing, so it is
+     * not counted towards {@link #insertions()}; neither is the rare new value whose bits were all already set,
+     * which makes the count a slight underestimate.
+     */
+    public boolean put(String value) {
+        long[] hash = hash(value);
+        long combined = hash[0];
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Long.remainderUnsigned(combined, bitCount));
+            combined += hash[1];
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    public boolean mightContain(String value) {
+        long[] hash = hash(value);
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(combined, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += hash[1];
+        }
+        return true;
+    }
+
+    public long insertions() {
+        return insertions.get();
+    }
+
+    public long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    // Two independent 64-bit FNV-1a streams finished with the SplitMix64 mixer; cheap and well spread for UUID strings.
+    private static long[] hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x84222325cbf29ce4L;
+        for (byte b : bytes) {
+            h1 = (h1 ^ (b & 0xff)) * 0x100000001b3L;
+            h2 = (h2 ^ (b & 0xff)) * 0x00000100000001b3L + 0x9e3779b97f4a7c15L;
+        }
+        return new long[]{mix(h1), mix(h2) | 1};
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,98 @@
+package com.chequepay.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread pool of JCA engines used by the crypto utilities.
+ * <p>
+ * {@code Cipher}, {@code Signature}, {@code MessageDigest} and {@code Mac} are not thread-safe, but they can be re-initialised
+ * and reused indefinitely by the thread that owns them. Caching one instance per algorithm per thread
+ * removes the provider lookup from every call, and HMAC engines are kept initialised with their key. They are
+ * cached by {@link SecretKey}, never by the secret's text.
+ * <p>
+ * IVs come from {@link ThreadLocalSecureRandom}.
+ */
+public final class CryptoEngine {
+
+    private static final int MAX_HMAC_KEYS_PER_THREAD = 16;
+
+    private static final ThreadLocal<Map<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<SecretKey, Mac>> KEYED_HMACS = ThreadLocal.withInitial(HashMap::new);
+
+    private CryptoEngine() {
+    }
+
+    public static Cipher cipher(String transformation) throws GeneralSecurityException {
+        Map<String, Cipher> ciphers = CIPHERS.get();
+        Cipher cipher = ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    public static Signature signature(String algorithm) throws GeneralSecurityException {
+        Map<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signatures.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    public static MessageDigest digest(String algorithm) throws GeneralSecurityException {
+        Map<String, MessageDigest> digests = DIGESTS.get();
+        MessageDigest digest = digests.get(algorithm);
+        if (digest == null) {
+            digest = MessageDigest.getInstance(algorithm);
+            digests.put(algorithm, digest);
+        }
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Returns a {@code Mac} already initialised with {@code secret} and reset, so callers can use it straight away
+     * without calling {@code init} again, even if the previous caller on this thread failed before its
+     * {@code doFinal}.
+     */
+    public static Mac hmac(String algorithm, String secret) throws GeneralSecurityException {
+        return hmac(new SecretKeySpec(secret.getBytes(), algorithm));
+    }
+
+    /**
+     * Same as {@link #hmac(String, String)} for a binary key; the algorithm is taken from the key.
+     */
+    public static Mac hmac(SecretKey key) throws GeneralSecurityException {
+        Map<SecretKey, Mac> macs = KEYED_HMACS.get();
+        Mac mac = macs.get(key);
+        if (mac == null) {
+            if (macs.size() >= MAX_HMAC_KEYS_PER_THREAD) {
+                macs.clear();
+            }
+            mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            macs.put(key, mac);
+        }
+        mac.reset();
+        return mac;
+    }
+
+    public static byte[] nextIv(int size) {
+        byte[] iv = new byte[size];
+        ThreadLocalSecureRandom.current().nextBytes(iv);
+        return iv;
+    }
+}
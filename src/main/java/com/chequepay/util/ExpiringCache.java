@@ -0,0 +1,68 @@
+package com.chequepay.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small thread-safe cache whose entries expire a fixed time after they were written.
+ * <p>
+ * Expired entries are dropped when they are read, and swept in one pass when the cache reaches its size
+ * limit. If every entry is still live at that point the cache is cleared, which keeps memory bounded
+ * without tracking access order.
+ */
+public class ExpiringCache<K, V> {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    public ExpiringCache(long ttlMillis, int maxSize) {
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        if (ttlNanos <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired();
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -1,19 +1,36 @@
 package com.chequepay.util;
 
 import javax.crypto.Mac;
+import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Base64;
 
 public class HmacUtil {
+    private static final String ALGORITHM = "HmacSHA256";
+
     public static String hmacSHA256(String data, String secret) throws Exception {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(), "HmacSHA256");
-        mac.init(secretKeySpec);
+        Mac mac = CryptoEngine.hmac(ALGORITHM, secret);
         return Base64.getEncoder().encodeToString(mac.doFinal(data.getBytes()));
     }
 
+    public static byte[] hmacSHA256(byte[] data, SecretKey key) throws Exception {
+        return CryptoEngine.hmac(key).doFinal(data);
+    }
+
     public static boolean verifyHmac(String data, String secret, String hmacToVerify) throws Exception {
         String hmac = hmacSHA256(data, secret);
-        return hmac.equals(hmacToVerify);
+        return hmacToVerify != null && MessageDigest.isEqual(
+                hmac.getBytes(StandardCharsets.US_ASCII), hmacToVerify.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Derives a purpose-specific HMAC-SHA256 key from a master key, so that tags are never computed
+     * directly with a key that also encrypts data.
+     */
+    public static SecretKey deriveKey(SecretKey masterKey, String label) throws Exception {
+        SecretKey macKey = new SecretKeySpec(masterKey.getEncoded(), ALGORITHM);
+        return new SecretKeySpec(hmacSHA256(label.getBytes(StandardCharsets.UTF_8), macKey), ALGORITHM);
     }
 }
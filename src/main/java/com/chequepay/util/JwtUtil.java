@@ -1,49 +1,172 @@
 package com.chequepay.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+/**
+ * Issues and validates the HS256 bearer tokens used by the API.
+ * <p>
+ * The signing key is decoded from the configured secret once, and a single thread-safe parser is reused for
+ * every token. Tokens that passed validation are remembered for a short while, never beyond their own expiry,
+ * so a client reusing its token does not pay for the signature check on every request.
+ * <p>
+ * Tokens carry the user's role and the token version stored on the user's row. Raising that version revokes every
+ * token issued before, which is what lets the stateless authentication mode trust the role claim without looking
+ * the user up. This class only remembers the lowest version still accepted per user and rejects tokens below it;
+ * a token with a version this node has not heard of yet is newer, not forged, so it is accepted. The persisted
+ * versions are loaded and kept current by {@code TokenRevocationService}.
+ * <p>
+ * Every token also carries a {@code jti}. Single tokens are revoked by jti into a {@link NonceRegistry}, which
+ * answers in O(1) and forgets each entry once the token would have expired anyway, so memory is bounded by the
+ * number of live tokens rather than the number of logouts ever made.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    public static final String ROLE_CLAIM = "role";
+    public static final String VERSION_CLAIM = "ver";
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final long jwtExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final ExpiringCache<String, Claims> validatedTokens;
+    private final Map<String, Integer> minimumVersions = new ConcurrentHashMap<>();
+    private final NonceRegistry revokedTokens = new NonceRegistry(Duration.ofMinutes(1));
+
+    public JwtUtil(@Value("${jwt.secret}") String jwtSecret,
+                   @Value("${jwt.expiration}") long jwtExpiration,
+                   @Value("${jwt.cache.ttl-ms:60000}") long cacheTtlMillis,
+                   @Value("${jwt.cache.max-size:10000}") int cacheMaxSize) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = signingKey(jwtSecret);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.validatedTokens = new ExpiringCache<>(cacheTtlMillis, cacheMaxSize);
+    }
+
+    /**
+     * Decodes the Base64 secret into an HS256 key. HS256 needs at least 256 bits, and jjwt would otherwise only
+     * reject a shorter key on the first login, so it is checked here and the application refuses to start.
+     */
+    private static SecretKey signingKey(String jwtSecret) {
+        byte[] secret = Decoders.BASE64.decode(jwtSecret);
+        if (secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("jwt.secret must be Base64 for at least " + MIN_SECRET_BYTES * 8
+                    + " bits, but it decodes to " + secret.length * 8 + "; generate one with 'openssl rand -base64 32'");
+        }
+        return new SecretKeySpec(secret, SignatureAlgorithm.HS256.getJcaName());
+    }
 
     public String generateToken(String username) {
+        return generateToken(username, null);
+    }
+
+    public String generateToken(String username, String role) {
+        return generateToken(username, role, minimumVersions.getOrDefault(username, 0));
+    }
+
+    /**
+     * Issues a token at the given version, normally the one stored for the user. Tokens below it are rejected from
+     * then on.
+     */
+    public String generateToken(String username, String role, int version) {
+        revokeTokensBefore(username, version);
         return Jwts.builder()
+                .setId(UuidV7.generate().toString())
                 .setSubject(username)
+                .claim(ROLE_CLAIM, role)
+                .claim(VERSION_CLAIM, version)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(SignatureAlgorithm.HS256, jwtSecret)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry of the token in one parse and returns its claims.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public Claims validateToken(String token) {
+        Claims cached = validatedTokens.get(token);
+        if (cached != null && cached.getExpiration().after(new Date())) {
+            return cached;
+        }
+        if (cached != null) {
+            validatedTokens.invalidate(token);
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            validatedTokens.put(token, claims);
+        }
+        return claims;
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return validateToken(token).getSubject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(validateToken(token));
     }
 
     public boolean isTokenValid(String token, String username) {
-        return username.equals(extractUsername(token)) && !isTokenExpired(token);
+        Claims claims = validateToken(token);
+        return username.equals(claims.getSubject()) && isCurrentVersion(claims) && !isRevoked(claims);
+    }
+
+    /**
+     * Returns false for tokens issued before the subject's tokens were last revoked. Tokens without a version
+     * claim count as version 0.
+     */
+    public boolean isCurrentVersion(Claims claims) {
+        Integer version = claims.get(VERSION_CLAIM, Integer.class);
+        return (version == null ? 0 : version) >= minimumVersions.getOrDefault(claims.getSubject(), 0);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        return claims.getId() != null && revokedTokens.contains(claims.getId());
+    }
+
+    /**
+     * Revokes the token with the given jti on this node until {@code expiresAt}, after which it is rejected as
+     * expired anyway.
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        revokedTokens.markIfUnused(jti, expiresAt);
+    }
+
+    /**
+     * Rejects the user's tokens with a version below {@code version} on this node. Versions only ever rise, so
+     * applying an older one again has no effect.
+     */
+    public void revokeTokensBefore(String username, int version) {
+        if (version > 0) {
+            minimumVersions.merge(username, version, Math::max);
+        }
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+    /**
+     * Drops what this node remembers about the username's token versions, for a user that was just created. A
+     * deleted user's name may be registered again, and the new account starts over at version 0.
+     */
+    public void forgetTokenVersions(String username) {
+        minimumVersions.remove(username);
     }
 }
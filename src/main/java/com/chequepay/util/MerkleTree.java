@@ -0,0 +1,112 @@
+package com.chequepay.util;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary SHA-256 Merkle tree over a batch of cheque payloads.
+ * <p>
+ * Leaves and inner nodes are hashed with different prefixes so a leaf can never be passed off as an
+ * inner node. When a level has an odd number of nodes the last one is paired with itself, which keeps
+ * every inclusion proof exactly {@code depth} hashes long and lets the leaf index alone decide, at
+ * each level, whether the sibling sits on the left or the right.
+ */
+public final class MerkleTree {
+
+    public static final int HASH_LENGTH = 32;
+
+    private static final String DIGEST = "SHA-256";
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[][]> levels;
+
+    private MerkleTree(List<byte[][]> levels) {
+        this.levels = levels;
+    }
+
+    public static MerkleTree build(List<byte[]> payloads) throws GeneralSecurityException {
+        if (payloads.isEmpty()) {
+            throw new IllegalArgumentException("A Merkle tree needs at least one leaf");
+        }
+
+        List<byte[][]> levels = new ArrayList<>();
+        byte[][] level = new byte[payloads.size()][];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = leafHash(payloads.get(i));
+        }
+        levels.add(level);
+
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                byte[] left = level[2 * i];
+                byte[] right = 2 * i + 1 < level.length ? level[2 * i + 1] : left;
+                parent[i] = nodeHash(left, right);
+            }
+            levels.add(parent);
+            level = parent;
+        }
+        return new MerkleTree(levels);
+    }
+
+    public byte[] getRoot() {
+        return levels.get(levels.size() - 1)[0];
+    }
+
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * Returns the sibling hashes from the leaf up to (but excluding) the root, concatenated.
+     */
+    public byte[] proof(int leafIndex) {
+        byte[] proof = new byte[(levels.size() - 1) * HASH_LENGTH];
+        int index = leafIndex;
+        for (int depth = 0; depth < levels.size() - 1; depth++) {
+            byte[][] level = levels.get(depth);
+            int siblingIndex = (index & 1) == 0 ? index + 1 : index - 1;
+            byte[] sibling = siblingIndex < level.length ? level[siblingIndex] : level[index];
+            System.arraycopy(sibling, 0, proof, depth * HASH_LENGTH, HASH_LENGTH);
+            index >>= 1;
+        }
+        return proof;
+    }
+
+    public static byte[] computeRoot(byte[] payload, int leafIndex, byte[] proof) throws GeneralSecurityException {
+        if (proof.length % HASH_LENGTH != 0) {
+            throw new IllegalArgumentException("Malformed Merkle proof");
+        }
+
+        byte[] current = leafHash(payload);
+        byte[] sibling = new byte[HASH_LENGTH];
+        int index = leafIndex;
+        for (int offset = 0; offset < proof.length; offset += HASH_LENGTH) {
+            System.arraycopy(proof, offset, sibling, 0, HASH_LENGTH);
+            current = (index & 1) == 0 ? nodeHash(current, sibling) : nodeHash(sibling, current);
+            index >>= 1;
+        }
+        if (index != 0) {
+            throw new IllegalArgumentException("Merkle leaf index does not match the proof");
+        }
+        return current;
+    }
+
+    public static byte[] leafHash(byte[] payload) throws GeneralSecurityException {
+        MessageDigest digest = CryptoEngine.digest(DIGEST);
+        digest.update(LEAF_PREFIX);
+        digest.update(payload);
+        return digest.digest();
+    }
+
+    private static byte[] nodeHash(byte[] left, byte[] right) throws GeneralSecurityException {
+        MessageDigest digest = CryptoEngine.digest(DIGEST);
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+}
@@ -0,0 +1,123 @@
+package com.chequepay.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent registry of used nonces that forgets each nonce once its cheque has expired.
+ * <p>
+ * Nonces are grouped into time buckets by expiry. Once a bucket lies entirely in the past, every nonce
+ * in it is dropped in one pass, so memory tracks the number of cheques that could still be presented rather than
+ * the number ever cleared. A nonce that expired can be forgotten safely because its cheque is rejected
+ * as expired before the nonce is consulted. The same holds for the ids of revoked JWTs, which are kept here too.
+ */
+public class NonceRegistry {
+
+    private final long bucketMillis;
+    private final Map<String, Long> nonces = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong nextSweep = new AtomicLong();
+    private final AtomicLong evictedTotal = new AtomicLong();
+    private volatile long lastSweepEvicted;
+    private volatile long lastSweepAt;
+    private volatile long previousSweepAt;
+
+    public NonceRegistry(Duration bucketWidth) {
+        this.bucketMillis = bucketWidth.toMillis();
+    }
+
+    /**
+     * Marks the nonce as used until {@code expiresAt}. Returns false, without changing anything, if it was
+     * already marked; the check and the mark are a single atomic step.
+     */
+    public boolean markIfUnused(String nonce, Instant expiresAt) {
+        long now = System.currentTimeMillis();
+        sweepIfDue(now);
+
+        long bucket = Math.floorDiv(Math.max(expiresAt.toEpochMilli(), now), bucketMillis);
+        if (nonces.putIfAbsent(nonce, bucket) != null) {
+            return false;
+        }
+        Set<String> members = buckets.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet());
+        members.add(nonce);
+        if (buckets.get(bucket) != members) {
+            // A sweep detached the bucket meanwhile and may have missed this nonce. The bucket has expired, so
+            // the nonce can be forgotten right away instead of being left behind with no bucket to evict it.
+            nonces.remove(nonce, bucket);
+        }
+        return true;
+    }
+
+    public boolean contains(String nonce) {
+        return nonces.containsKey(nonce);
+    }
+
+    /**
+     * Forgets a nonce that was marked by an operation which then failed, so the cheque can be presented again.
+     */
+    public void release(String nonce) {
+        Long bucket = nonces.remove(nonce);
+        if (bucket != null) {
+            Set<String> members = buckets.get(bucket);
+            if (members != null) {
+                members.remove(nonce);
+            }
+        }
+    }
+
+    public int size() {
+        return nonces.size();
+    }
+
+    public Stats stats() {
+        long window = lastSweepAt - previousSweepAt;
+        double rate = window > 0 ? lastSweepEvicted * 1000.0 / window : 0;
+        return new Stats(nonces.size(), evictedTotal.get(), rate);
+    }
+
+    /**
+     * Drops every bucket that ends at or before {@code nowMillis}. Runs at most once per bucket width, by
+     * whichever caller first notices that it is due.
+     */
+    private void sweepIfDue(long nowMillis) {
+        long due = nextSweep.get();
+        if (nowMillis < due || !nextSweep.compareAndSet(due, (Math.floorDiv(nowMillis, bucketMillis) + 1) * bucketMillis)) {
+            return;
+        }
+
+        long evicted = 0;
+        // Each bucket is detached before it is read, so a nonce added to it concurrently is either seen here or
+        // noticed as detached by markIfUnused.
+        for (Long bucket : buckets.headMap(Math.floorDiv(nowMillis, bucketMillis), false).keySet()) {
+            Set<String> members = buckets.remove(bucket);
+            if (members == null) {
+                continue;
+            }
+            for (String nonce : members) {
+                if (nonces.remove(nonce, bucket)) {
+                    evicted++;
+                }
+            }
+        }
+
+        evictedTotal.addAndGet(evicted);
+        lastSweepEvicted = evicted;
+        previousSweepAt = lastSweepAt == 0 ? nowMillis - bucketMillis : lastSweepAt;
+        lastSweepAt = nowMillis;
+    }
+
+    /**
+     * @param size               nonces currently held
+     * @param evictedTotal       nonces dropped since startup
+     * @param evictionsPerSecond eviction rate measured over the last sweep interval
+     */
+    public record Stats(int size, long evictedTotal, double evictionsPerSecond) {
+    }
+}
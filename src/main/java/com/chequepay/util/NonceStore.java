@@ -1,21 +1,41 @@
 package com.chequepay.util;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 public class NonceStore {
-    private static final Set<String> usedNonces = new HashSet<>();
+    // Nonces marked without a known expiry are kept for as long as a cheque can reasonably stay valid.
+    private static final Duration DEFAULT_RETENTION = Duration.ofDays(366);
+
+    private static final NonceRegistry usedNonces = new NonceRegistry(Duration.ofMinutes(1));
 
     public static boolean hasBeenUsed(String nonce) {
         return usedNonces.contains(nonce);
     }
 
     public static void markAsUsed(String nonce) {
-        usedNonces.add(nonce);
+        usedNonces.markIfUnused(nonce, Instant.now().plus(DEFAULT_RETENTION));
+    }
+
+    /**
+     * Atomically marks the nonce as used until the cheque expires. Returns false if it was already used.
+     */
+    public static boolean markAsUsed(String nonce, LocalDateTime expiryDate) {
+        return usedNonces.markIfUnused(nonce, expiryDate.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    public static void release(String nonce) {
+        usedNonces.release(nonce);
+    }
+
+    public static NonceRegistry.Stats stats() {
+        return usedNonces.stats();
     }
 
     public static String generateNonce() {
-        return UUID.randomUUID().toString();
+        // Time-ordered, so claims in the used_nonces table append to its primary key index.
+        return UuidV7.generate().toString();
     }
 }
@@ -14,16 +14,23 @@ public class RSAUtil {
     }
 
     public static String encrypt(String plainText, PublicKey publicKey) throws Exception {
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        return Base64.getEncoder().encodeToString(encrypt(plainText.getBytes(), publicKey));
+    }
+
+    public static byte[] encrypt(byte[] plainText, PublicKey publicKey) throws Exception {
+        Cipher cipher = CryptoEngine.cipher(TRANSFORMATION);
         cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes()));
+        return cipher.doFinal(plainText);
     }
 
     public static String decrypt(String cipherText, PrivateKey privateKey) throws Exception {
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        return new String(decrypt(Base64.getDecoder().decode(cipherText), privateKey));
+    }
+
+    public static byte[] decrypt(byte[] cipherText, PrivateKey privateKey) throws Exception {
+        Cipher cipher = CryptoEngine.cipher(TRANSFORMATION);
         cipher.init(Cipher.DECRYPT_MODE, privateKey);
-        byte[] decoded = Base64.getDecoder().decode(cipherText);
-        return new String(cipher.doFinal(decoded));
+        return cipher.doFinal(cipherText);
     }
 
     public static String toBase64(Key key) {
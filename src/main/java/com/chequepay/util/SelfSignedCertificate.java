@@ -0,0 +1,108 @@
+package com.chequepay.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Builds the minimal self-signed X.509 certificate a PKCS12 key store needs to hold a private key.
+ * <p>
+ * The certificate is never presented to anyone; it only carries the public key next to its private key
+ * in the key ring, so it has no extensions and does not expire.
+ */
+public final class SelfSignedCertificate {
+
+    private static final byte[] OID_COMMON_NAME = {0x55, 0x04, 0x03};
+    private static final byte[] OID_SHA256_WITH_RSA = {0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x0b};
+    private static final byte[] OID_ED25519 = {0x2b, 0x65, 0x70};
+
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final String NO_EXPIRY = "99991231235959Z";
+
+    private SelfSignedCertificate() {
+    }
+
+    public static X509Certificate generate(String commonName, KeyPair keyPair, SignatureScheme scheme) throws Exception {
+        byte[] algorithm = algorithmIdentifier(scheme);
+        byte[] name = sequence(set(sequence(oid(OID_COMMON_NAME), tlv(0x0c, commonName.getBytes(StandardCharsets.UTF_8)))));
+
+        byte[] tbs = sequence(
+                tlv(0xa0, integer(BigInteger.valueOf(2))),
+                integer(new BigInteger(64, new SecureRandom()).setBit(63)),
+                algorithm,
+                name,
+                sequence(tlv(0x17, UTC_TIME.format(Instant.now()).getBytes(StandardCharsets.US_ASCII)),
+                        tlv(0x18, NO_EXPIRY.getBytes(StandardCharsets.US_ASCII))),
+                name,
+                keyPair.getPublic().getEncoded()
+        );
+
+        byte[] signature = SignatureUtil.sign(tbs, keyPair.getPrivate(), scheme);
+        byte[] certificate = sequence(tbs, algorithm, bitString(signature));
+
+        return (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(certificate));
+    }
+
+    private static byte[] algorithmIdentifier(SignatureScheme scheme) {
+        return switch (scheme) {
+            case RSA_SHA256 -> sequence(oid(OID_SHA256_WITH_RSA), new byte[]{0x05, 0x00});
+            case ED25519 -> sequence(oid(OID_ED25519));
+        };
+    }
+
+    private static byte[] oid(byte[] encoded) {
+        return tlv(0x06, encoded);
+    }
+
+    private static byte[] integer(BigInteger value) {
+        return tlv(0x02, value.toByteArray());
+    }
+
+    private static byte[] bitString(byte[] bits) {
+        byte[] content = new byte[bits.length + 1];
+        System.arraycopy(bits, 0, content, 1, bits.length);
+        return tlv(0x03, content);
+    }
+
+    private static byte[] sequence(byte[]... elements) {
+        return tlv(0x30, concat(elements));
+    }
+
+    private static byte[] set(byte[]... elements) {
+        return tlv(0x31, concat(elements));
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] tlv(int tag, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 6);
+        out.write(tag);
+        int length = content.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int lengthBytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | lengthBytes);
+            for (int i = lengthBytes - 1; i >= 0; i--) {
+                out.write(length >>> (8 * i));
+            }
+        }
+        out.writeBytes(content);
+        return out.toByteArray();
+    }
+}
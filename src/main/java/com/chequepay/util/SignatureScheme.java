@@ -0,0 +1,31 @@
+package com.chequepay.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum SignatureScheme {
+    RSA_SHA256("SHA256withRSA", "RSA", 2048),
+    ED25519("Ed25519", "Ed25519", 255);
+
+    private final String algorithm;
+    private final String keyAlgorithm;
+    private final int keySize;
+
+    /**
+     * Resolves the scheme recorded on a cheque. Cheques signed before the column existed carry no
+     * algorithm and were always signed with SHA256withRSA.
+     */
+    public static SignatureScheme fromAlgorithm(String algorithm) {
+        if (algorithm == null || algorithm.isBlank()) {
+            return RSA_SHA256;
+        }
+        for (SignatureScheme scheme : values()) {
+            if (scheme.algorithm.equalsIgnoreCase(algorithm) || scheme.name().equalsIgnoreCase(algorithm)) {
+                return scheme;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported signature algorithm: " + algorithm);
+    }
+}
@@ -4,18 +4,40 @@ import java.security.*;
 import java.util.Base64;
 
 public class SignatureUtil {
+
+    public static KeyPair generateKeyPair(SignatureScheme scheme) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(scheme.getKeyAlgorithm());
+        generator.initialize(scheme.getKeySize());
+        return generator.generateKeyPair();
+    }
+
     public static String sign(String data, PrivateKey privateKey) throws Exception {
-        Signature signature = Signature.getInstance("SHA256withRSA");
+        return sign(data, privateKey, SignatureScheme.RSA_SHA256);
+    }
+
+    public static String sign(String data, PrivateKey privateKey, SignatureScheme scheme) throws Exception {
+        return Base64.getEncoder().encodeToString(sign(data.getBytes(), privateKey, scheme));
+    }
+
+    public static byte[] sign(byte[] data, PrivateKey privateKey, SignatureScheme scheme) throws Exception {
+        Signature signature = CryptoEngine.signature(scheme.getAlgorithm());
         signature.initSign(privateKey);
-        signature.update(data.getBytes());
-        return Base64.getEncoder().encodeToString(signature.sign());
+        signature.update(data);
+        return signature.sign();
     }
 
     public static boolean verify(String data, String base64Signature, PublicKey publicKey) throws Exception {
-        Signature signature = Signature.getInstance("SHA256withRSA");
+        return verify(data, base64Signature, publicKey, SignatureScheme.RSA_SHA256);
+    }
+
+    public static boolean verify(String data, String base64Signature, PublicKey publicKey, SignatureScheme scheme) throws Exception {
+        return verify(data.getBytes(), Base64.getDecoder().decode(base64Signature), publicKey, scheme);
+    }
+
+    public static boolean verify(byte[] data, byte[] signatureBytes, PublicKey publicKey, SignatureScheme scheme) throws Exception {
+        Signature signature = CryptoEngine.signature(scheme.getAlgorithm());
         signature.initVerify(publicKey);
-        signature.update(data.getBytes());
-        byte[] sigBytes = Base64.getDecoder().decode(base64Signature);
-        return signature.verify(sigBytes);
+        signature.update(data);
+        return signature.verify(signatureBytes);
     }
 }
@@ -0,0 +1,35 @@
+package com.chequepay.util;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * One {@code DRBG} {@link SecureRandom} per thread, seeded once from the system entropy source when the thread
+ * first asks for it.
+ * <p>
+ * A DRBG instance keeps all of its state to itself, so threads never contend on a generator lock. The default
+ * {@code new SecureRandom()} would not do: on Linux it is {@code NativePRNG}, whose instances all share one
+ * global, synchronized state.
+ */
+public final class ThreadLocalSecureRandom {
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(ThreadLocalSecureRandom::newDrbg);
+
+    private ThreadLocalSecureRandom() {
+    }
+
+    /**
+     * Returns the calling thread's generator. It must not be handed to other threads.
+     */
+    public static SecureRandom current() {
+        return RANDOM.get();
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("DRBG SecureRandom is not available", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.chequepay;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.repository.ChequeRepository;
+import com.chequepay.service.ChequeIntegrity;
+import com.chequepay.service.ChequeSignature;
+import com.chequepay.service.ChequeSigner;
+import com.chequepay.service.ChequeSigningPipeline;
+import com.chequepay.service.KeyManager;
+import com.chequepay.util.AESUtil;
+import com.chequepay.util.SignatureScheme;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncIssueServiceTest {
+
+    @Mock
+    private ChequeRepository chequeRepository;
+
+    @Mock
+    private KeyManager keyManager;
+
+    @Mock
+    private ChequeSigner chequeSigner;
+
+    @Mock
+    private ChequeIntegrity chequeIntegrity;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChequeSigningPipeline signingPipeline;
+
+    private final List<String> savedStatuses = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(keyManager.getActiveKeyId()).thenReturn("key-1");
+        lenient().when(keyManager.getDataKey("key-1")).thenReturn(AESUtil.generateAESKey());
+        lenient().when(keyManager.getWrappedDataKey("key-1")).thenReturn(new byte[]{1, 2, 3});
+        lenient().when(chequeRepository.save(any(Cheque.class))).thenAnswer(invocation -> {
+            Cheque cheque = invocation.getArgument(0);
+            savedStatuses.add(cheque.getStatus());
+            if (cheque.getId() == null) {
+                cheque.setId(UUID.randomUUID());
+            }
+            return cheque;
+        });
+
+        signingPipeline = new ChequeSigningPipeline(chequeRepository, keyManager, chequeSigner, chequeIntegrity, transactionManager, "async", 1, 100, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        signingPipeline.shutdown();
+    }
+
+    private static Cheque newCheque() {
+        return Cheque.builder()
+                .amount(new BigDecimal("250"))
+                .payerUsername("alice")
+                .payeeUsername("bob")
+                .issueDate(LocalDateTime.now())
+                .expiryDate(LocalDateTime.now().plusDays(5))
+                .nonce(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Test
+    void asyncIssueSignsInBackground() throws Exception {
+        CountDownLatch signerGate = new CountDownLatch(1);
+        when(chequeSigner.sign(any())).thenAnswer(invocation -> {
+            signerGate.await(5, TimeUnit.SECONDS);
+            return ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64]);
+        });
+
+        Cheque cheque = signingPipeline.submit(newCheque());
+        CompletableFuture<Void> completion = signingPipeline.completion(cheque.getId());
+        assertNotNull(completion, "Submitted cheques must be awaitable");
+        signerGate.countDown();
+        completion.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(ChequeSigningPipeline.PENDING_SIGNATURE), savedStatuses,
+                "The cheque must be stored as pending before it is signed");
+        assertEquals("ISSUED", cheque.getStatus());
+        assertEquals("key-1", cheque.getKeyId());
+        assertNotNull(cheque.getEncryptedData());
+        verify(chequeRepository).saveAll(List.of(cheque));
+        assertNull(signingPipeline.completion(cheque.getId()), "Completed cheques must be forgotten");
+    }
+
+    @Test
+    void signingFailureMarksCheque() throws Exception {
+        CountDownLatch signerGate = new CountDownLatch(1);
+        when(chequeSigner.sign(any())).thenAnswer(invocation -> {
+            signerGate.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("Signing key unavailable");
+        });
+
+        Cheque cheque = signingPipeline.submit(newCheque());
+        CompletableFuture<Void> completion = signingPipeline.completion(cheque.getId());
+        signerGate.countDown();
+
+        assertThrows(ExecutionException.class, () -> completion.get(5, TimeUnit.SECONDS));
+        assertEquals(ChequeSigningPipeline.SIGNING_FAILED, cheque.getStatus());
+        verify(chequeRepository).saveAll(List.of(cheque));
+    }
+
+    @Test
+    void recoverPendingSignsLeftoverCheques() throws Exception {
+        Cheque first = newCheque();
+        Cheque second = newCheque();
+        for (Cheque cheque : List.of(first, second)) {
+            cheque.setId(UUID.randomUUID());
+            cheque.setStatus(ChequeSigningPipeline.PENDING_SIGNATURE);
+        }
+        when(chequeRepository.findByStatusOrderById(eq(ChequeSigningPipeline.PENDING_SIGNATURE), any(Pageable.class)))
+                .thenReturn(List.of(first, second), List.of());
+        when(chequeSigner.signAll(anyList())).thenReturn(List.of(
+                ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64]),
+                ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64])));
+
+        signingPipeline.recoverPending();
+
+        assertEquals("ISSUED", first.getStatus());
+        assertEquals("ISSUED", second.getStatus());
+        verify(chequeRepository).saveAll(List.of(first, second));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void versionConflictKeepsTheOtherChequesOfTheBatch() throws Exception {
+        CountDownLatch signerGate = new CountDownLatch(1);
+        lenient().when(chequeSigner.sign(any())).thenAnswer(invocation -> {
+            signerGate.await(5, TimeUnit.SECONDS);
+            return ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64]);
+        });
+        lenient().when(chequeSigner.signAll(anyList())).thenAnswer(invocation -> {
+            signerGate.await(5, TimeUnit.SECONDS);
+            List<?> payloads = invocation.getArgument(0);
+            return payloads.stream().map(p -> ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64])).toList();
+        });
+
+        Cheque kept = signingPipeline.submit(newCheque());
+        Cheque recoveredElsewhere = signingPipeline.submit(newCheque());
+        ObjectOptimisticLockingFailureException stale =
+                new ObjectOptimisticLockingFailureException(Cheque.class, recoveredElsewhere.getId());
+        // Another node signed and stored this cheque first, so any write carrying it fails on the version.
+        doAnswer(invocation -> {
+            if (((List<?>) invocation.getArgument(0)).contains(recoveredElsewhere)) {
+                throw stale;
+            }
+            return invocation.getArgument(0);
+        }).when(chequeRepository).saveAll(anyList());
+        doThrow(stale).when(chequeRepository).save(recoveredElsewhere);
+        CompletableFuture<Void> keptCompletion = signingPipeline.completion(kept.getId());
+        CompletableFuture<Void> conflictCompletion = signingPipeline.completion(recoveredElsewhere.getId());
+        signerGate.countDown();
+
+        keptCompletion.get(5, TimeUnit.SECONDS);
+        ExecutionException conflict = assertThrows(ExecutionException.class, () -> conflictCompletion.get(5, TimeUnit.SECONDS));
+        assertSame(stale, conflict.getCause());
+    }
+}
@@ -0,0 +1,119 @@
+package com.chequepay;
+
+import com.chequepay.audit.AuditLog;
+import com.chequepay.audit.AuditLogRepository;
+import com.chequepay.audit.AuditQueryService;
+import org.hibernate.Session;
+import org.hibernate.stat.SessionStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(AuditQueryService.class)
+public class AuditQueryServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditQueryService auditQueryService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        List<AuditLog> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Pairs of records share a timestamp, so pages must break ties on id without skipping or repeating.
+            records.add(AuditLog.builder()
+                    .eventType(i % 3 == 0 ? "LOGIN" : "API_CALL")
+                    .username(i % 2 == 0 ? "yamarze" : "bolin0330")
+                    .status("SUCCESS")
+                    .timestamp(T0.plusMinutes(i / 2))
+                    .details("event " + i)
+                    .build());
+        }
+        auditLogRepository.saveAll(records);
+    }
+
+    @Test
+    void keysetPagesCoverEveryRecordOnceNewestFirst() {
+        AuditQueryService.Filter all = new AuditQueryService.Filter(null, null, null, null, null);
+        List<AuditLog> seen = new ArrayList<>();
+        AuditQueryService.Cursor cursor = null;
+        List<AuditLog> page;
+        do {
+            page = auditQueryService.page(all, cursor, 3);
+            seen.addAll(page);
+            if (!page.isEmpty()) {
+                cursor = AuditQueryService.Cursor.parse(AuditQueryService.Cursor.of(page.get(page.size() - 1)).toString());
+            }
+        } while (page.size() == 3);
+
+        assertEquals(10, seen.size());
+        assertEquals(10, seen.stream().map(AuditLog::getId).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            assertFalse(seen.get(i).getTimestamp().isAfter(seen.get(i - 1).getTimestamp()));
+        }
+    }
+
+    @Test
+    void streamAppliesFiltersAndLimit() {
+        AuditQueryService.Filter filter = new AuditQueryService.Filter("yamarze", null, "SUCCESS",
+                T0.plusMinutes(1), T0.plusMinutes(4));
+        List<String> details = new ArrayList<>();
+        long sent = auditQueryService.stream(filter, null, 0, record -> details.add(record.getDetails()));
+
+        assertEquals(3, sent);
+        assertEquals(List.of("event 6", "event 4", "event 2"), details);
+
+        List<AuditLog> limited = new ArrayList<>();
+        auditQueryService.stream(new AuditQueryService.Filter(null, "LOGIN", null, null, null), null, 2, limited::add);
+        assertEquals(2, limited.size());
+        assertEquals(T0.plusMinutes(4), limited.get(0).getTimestamp());
+    }
+
+    @Test
+    void streamDetachesEachPageFromThePersistenceContext() {
+        List<AuditLog> records = new ArrayList<>();
+        for (int i = 0; i < AuditQueryService.PAGE_SIZE * 2 + 100; i++) {
+            records.add(AuditLog.builder().eventType("BULK").status("SUCCESS").timestamp(T0.minusSeconds(i)).build());
+        }
+        auditLogRepository.saveAll(records);
+        entityManager.flush();
+        entityManager.clear();
+
+        // A test transaction holds one persistence context for its whole length, as open-session-in-view does.
+        SessionStatistics statistics = entityManager.getEntityManager().unwrap(Session.class).getStatistics();
+        int[] mostManaged = {0};
+        long sent = auditQueryService.stream(new AuditQueryService.Filter(null, "BULK", null, null, null), null, 0,
+                record -> mostManaged[0] = Math.max(mostManaged[0], statistics.getEntityCount()));
+
+        assertEquals(records.size(), sent);
+        assertTrue(mostManaged[0] <= AuditQueryService.PAGE_SIZE, "Only the current page should be managed");
+        assertEquals(0, statistics.getEntityCount());
+    }
+
+    @Test
+    void rejectsEmptyRangeAndMalformedCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AuditQueryService.Filter(null, null, null, T0, T0));
+        assertThrows(IllegalArgumentException.class, () -> AuditQueryService.Cursor.parse("yesterday"));
+        assertThrows(IllegalArgumentException.class, () -> AuditQueryService.Cursor.parse("2026-01-01T12:00,not-a-uuid"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.chequepay;
+
+import com.chequepay.audit.AuditArchive;
+import com.chequepay.audit.AuditLog;
+import com.chequepay.audit.AuditLogRepository;
+import com.chequepay.audit.AuditQueryService;
+import com.chequepay.audit.AuditRetentionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class AuditRetentionServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void retentionArchivesExpiredDaysAndKeepsThemReadable(@TempDir Path archiveDir) throws Exception {
+        List<AuditLog> records = new ArrayList<>();
+        for (int daysAgo = 0; daysAgo < 10; daysAgo++) {
+            for (int i = 0; i < 3; i++) {
+                records.add(AuditLog.builder()
+                        .eventType("API_CALL")
+                        .username(i == 0 ? "yamarze" : "bolin0330")
+                        .status("SUCCESS")
+                        .timestamp(TODAY.minusDays(daysAgo).atTime(9, i))
+                        .details("day -" + daysAgo + " #" + i)
+                        .build());
+            }
+        }
+        auditLogRepository.saveAllAndFlush(records);
+
+        AuditArchive archive = new AuditArchive(new ObjectMapper().findAndRegisterModules(), archiveDir.toString());
+        AuditRetentionService retention = new AuditRetentionService(dataSource, transactionManager, archive,
+                true, 7, 2, 60_000);
+
+        assertEquals(6, retention.runOnce(TODAY));
+        assertEquals(24, auditLogRepository.count());
+        assertEquals(2, archive.files().size());
+        assertEquals(0, retention.runOnce(TODAY), "A second run in the same day finds nothing left to archive");
+
+        List<AuditLog> archived = new ArrayList<>();
+        archive.read(new AuditQueryService.Filter("yamarze", null, null,
+                TODAY.minusDays(9).atStartOfDay(), TODAY.minusDays(7).atStartOfDay()), archived::add);
+        assertEquals(List.of("day -9 #0", "day -8 #0"), archived.stream().map(AuditLog::getDetails).toList());
+        assertNotNull(archived.get(0).getId());
+    }
+}
@@ -4,8 +4,20 @@ import com.chequepay.audit.*;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -72,6 +84,59 @@ public class AuditServiceTest {
         assertFalse(masked.contains("ABC123"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void journalSurvivesRestartAndLoadsSealedSegments(@TempDir Path journalDir) throws Exception {
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        List<String> details = new ArrayList<>();
+        when(repo.saveAll(any())).thenAnswer(invocation -> {
+            ((Iterable<AuditLog>) invocation.getArgument(0)).forEach(log -> details.add(log.getDetails()));
+            return invocation.getArgument(0);
+        });
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        AuditJournal journal = new AuditJournal(repo, mapper, "journal", journalDir.toString(), 1024, 0, 60_000, 60_000, 2);
+        journal.start();
+        AuditService service = new AuditService(repo, null, journal, new AuditEventRenderer(mapper, "summary", 1024, 1.0),
+                new String[]{"password"});
+
+        for (int i = 0; i < 20; i++) {
+            service.recordEvent("API_CALL", "yamarze", "{\"password\":\"pw" + i + "\"}", "127.0.0.1", "SUCCESS");
+        }
+        verify(repo, never()).save(any());
+        assertEquals(20, journal.stats().appended());
+
+        // A new instance over the same directory stands in for a restart after a crash: the segment that was
+        // still active is recovered, and every record, from full and recovered segments alike, is loaded once.
+        AuditJournal restarted = new AuditJournal(repo, mapper, "journal", journalDir.toString(), 1024, 0, 60_000, 60_000, 2);
+        List<Path> orphans;
+        try (var files = Files.list(journalDir)) {
+            orphans = files.filter(file -> file.toString().endsWith(".seg")).toList();
+        }
+        restarted.start();
+        restarted.replay();
+        restarted.shutdown();
+
+        assertEquals(20, restarted.stats().loaded());
+        assertFalse(orphans.isEmpty(), "The last segment was still active when the first instance stopped");
+        assertEquals(20, details.size());
+        assertEquals("{\"password\":\"***\"}", details.get(0));
+        try (var files = Files.list(journalDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void maskingIsJsonAwareAndLeavesCleanInputUntouched() {
+        String clean = "{\"username\":\"yamarze\",\"note\":\"password: \\\"hunter2\\\" is not a key\"}";
+        assertSame(clean, MaskingUtil.maskSensitive(clean));
+
+        MaskingUtil masker = new MaskingUtil(Set.of("token", "pin"));
+        String masked = masker.mask("{\"TOKEN\" : \"a\\\"b,c\", \"pin\": 1234, \"nested\": {\"pin\": null}, \"qr\": \"iVBOR\"}");
+        assertEquals("{\"TOKEN\":\"***\", \"pin\":\"***\", \"nested\": {\"pin\": null}, \"qr\": \"iVBOR\"}", masked);
+        assertNull(masker.mask(null));
+        assertEquals("{\"token\":\"***\"", masker.mask("{\"token\": \"unterminat"));
+    }
+
     @Test
     void shouldCallAuditService() {
 
@@ -81,6 +146,9 @@ public class AuditServiceTest {
         when(request.getRemoteAddr()).thenReturn("127.0.0.1");
         when(request.getUserPrincipal()).thenReturn(null);
 
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getRequestURI()).thenReturn("/some/method");
+
         AuditAspect aspect = new AuditAspect(auditService, request);
 
         JoinPoint joinPoint = mock(JoinPoint.class);
@@ -91,12 +159,173 @@ public class AuditServiceTest {
 
         aspect.logSuccess(joinPoint, "OK");
 
-        verify(auditService).recordEvent(
-                eq("API_CALL"),
-                eq("ANONYMOUS"),
-                contains("SomeController.someMethod() -> OK"),
-                eq("127.0.0.1"),
-                eq("SUCCESS")
-        );
+        ArgumentCaptor<AuditEvent> captor = ArgumentCaptor.forClass(AuditEvent.class);
+        verify(auditService).record(captor.capture());
+        AuditEvent event = captor.getValue();
+        assertEquals("API_CALL", event.getEventType());
+        assertEquals("ANONYMOUS", event.getUsername());
+        assertEquals("SomeController.someMethod()", event.getAction());
+        assertEquals("POST", event.getHttpMethod());
+        assertEquals("/some/method", event.getPath());
+        assertEquals("127.0.0.1", event.getIpAddress());
+        assertEquals("SUCCESS", event.getStatus());
+        assertEquals("OK", event.getResult());
+    }
+
+    @Test
+    void structuredEventsAreSummarizedOnRecordAndRenderedInFullOnWrite() {
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        AuditEventRenderer renderer = new AuditEventRenderer(new ObjectMapper(), "summary", 256, 0.0);
+        AuditService service = new AuditService(repo, null, null, renderer, new String[]{"password"});
+        String qrCode = "iVBORw0KGgo".repeat(5_000);
+
+        service.record(AuditEvent.builder().eventType("API_CALL").action("TransferController.transferByQr(..)")
+                .httpMethod("POST").status("SUCCESS")
+                .result(ResponseEntity.ok(Map.of("success", true, "qrCodeBase64", qrCode))).build());
+        service.record(AuditEvent.builder().eventType("API_CALL").action("ChequeController.updateStatus(..)")
+                .httpMethod("PATCH").status("SUCCESS").policy(AuditCapture.Policy.FULL)
+                .result(Map.of("password", "hunter2", "qrCodeBase64", qrCode)).build());
+        service.record(AuditEvent.builder().eventType("API_CALL").httpMethod("GET").status("SUCCESS")
+                .result("sampled out").build());
+        service.record(AuditEvent.builder().eventType("API_CALL").httpMethod("GET").status("FAILURE")
+                .message("Cheque not found").build());
+
+        ArgumentCaptor<AuditLog> captor = ArgumentCaptor.forClass(AuditLog.class);
+        verify(repo, times(3)).save(captor.capture());
+        List<AuditLog> saved = captor.getAllValues();
+        assertNotNull(saved.get(0).getDetails(), "A summary is rendered up front so the result can be collected");
+        assertNull(saved.get(1).getDetails(), "Full details are rendered when the record is persisted, not before");
+        saved.forEach(AuditLog::resolveDetails);
+
+        String summary = saved.get(0).getDetails();
+        assertTrue(summary.startsWith("200 Map{"), summary);
+        assertTrue(summary.contains("success=true") && summary.contains("qrCodeBase64"), summary);
+        assertTrue(summary.length() < 64, "Summary should be tiny next to the 55 KB body: " + summary);
+
+        String full = saved.get(1).getDetails();
+        assertFalse(full.contains("hunter2"), full);
+        assertTrue(full.endsWith("...[truncated]"), full);
+        assertTrue(full.length() <= 256 + "...[truncated]".length(), "Full capture must respect the cap");
+        assertEquals("TransferController.transferByQr(..)", saved.get(0).getAction());
+
+        assertEquals("Cheque not found", saved.get(2).getDetails());
+        assertEquals("FAILURE", saved.get(2).getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void asyncPipelineBatchesAndDrainsOnShutdown() throws Exception {
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        AuditPipeline pipeline = new AuditPipeline(repo, new ObjectMapper(), "async", 1024, 4, 60_000, "block", "unused", 5_000);
+        AuditService service = new AuditService(repo, pipeline, null, new AuditEventRenderer(new ObjectMapper(), "summary", 1024, 1.0),
+                new String[]{"password"});
+
+        for (int i = 0; i < 10; i++) {
+            service.recordEvent("API_CALL", "yamarze", "call " + i, "127.0.0.1", "SUCCESS");
+        }
+        pipeline.shutdown();
+
+        ArgumentCaptor<Iterable<AuditLog>> batches = ArgumentCaptor.forClass(Iterable.class);
+        verify(repo, atLeast(3)).saveAll(batches.capture());
+        List<AuditLog> saved = new ArrayList<>();
+        batches.getAllValues().forEach(batch -> batch.forEach(saved::add));
+        assertEquals(10, saved.size(), "Every queued record must be written before shutdown completes");
+        verify(repo, never()).save(any());
+        assertEquals(10, pipeline.stats().written());
+    }
+
+    @Test
+    void dropPolicyCountsRecordsThatDoNotFit() throws Exception {
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repo.saveAll(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        AuditPipeline pipeline = new AuditPipeline(repo, new ObjectMapper(), "async", 4, 1, 0, "drop", "unused", 5_000);
+
+        pipeline.submit(AuditLog.builder().eventType("FIRST").build());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 6; i++) {
+            pipeline.submit(AuditLog.builder().eventType("NEXT").build());
+        }
+        assertEquals(2, pipeline.stats().dropped());
+
+        release.countDown();
+        pipeline.shutdown();
+        assertEquals(5, pipeline.stats().written());
+    }
+
+    @Test
+    void spillPolicyWritesOverflowToDiskAndReplaysIt(@TempDir Path spillDir) throws Exception {
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repo.saveAll(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        AuditPipeline pipeline = new AuditPipeline(repo, new ObjectMapper().findAndRegisterModules(), "async", 4, 1, 0,
+                "spill", spillDir.toString(), 5_000);
+
+        pipeline.submit(AuditLog.builder().eventType("FIRST").build());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 6; i++) {
+            pipeline.submit(AuditLog.builder().eventType("NEXT").details("spilled " + i).build());
+        }
+        assertEquals(2, pipeline.stats().spilled());
+        assertTrue(Files.exists(spillDir.resolve("audit-spill.ndjson")));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.stats().written() < 7 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.shutdown();
+
+        assertEquals(7, pipeline.stats().written(), "Spilled records must be loaded once the writer is idle");
+        try (var files = Files.list(spillDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".replay")));
+        }
+    }
+
+    @Test
+    void replayResumesAfterTheLastSavedBatch(@TempDir Path spillDir) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lines.add(objectMapper.writeValueAsString(AuditLog.builder().eventType("SPILLED").details("record " + i).build()));
+        }
+        lines.add(2, "{\"eventType\":\"CUT");
+        Files.write(spillDir.resolve("audit-spill.ndjson.1.replay"), lines);
+
+        AuditLogRepository repo = mock(AuditLogRepository.class);
+        List<String> saved = new ArrayList<>();
+        int[] calls = {0};
+        when(repo.saveAll(any())).thenAnswer(invocation -> {
+            if (++calls[0] == 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            List<AuditLog> batch = invocation.getArgument(0);
+            batch.forEach(record -> saved.add(record.getDetails()));
+            return batch;
+        });
+        AuditPipeline pipeline = new AuditPipeline(repo, objectMapper, "async", 16, 2, 20,
+                "spill", spillDir.toString(), 5_000);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.stats().written() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.shutdown();
+
+        assertEquals(List.of("record 0", "record 1", "record 2", "record 3", "record 4"), saved,
+                "A retried replay must not save the batches that were already loaded");
+        try (var files = Files.list(spillDir)) {
+            assertEquals(0, files.count(), "The replayed file and its checkpoint must be removed");
+        }
     }
 }
@@ -0,0 +1,133 @@
+package com.chequepay;
+
+import com.chequepay.entity.Cheque;
+import com.chequepay.service.ChequeSignature;
+import com.chequepay.service.ChequeSigner;
+import com.chequepay.service.KeyManager;
+import com.chequepay.util.SignatureScheme;
+import com.chequepay.util.SignatureUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchSignServiceTest {
+
+    @Mock
+    private KeyManager keyManager;
+
+    private ChequeSigner chequeSigner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPair edKeyPair = SignatureUtil.generateKeyPair(SignatureScheme.ED25519);
+        Mockito.lenient().when(keyManager.getSignatureScheme()).thenReturn(SignatureScheme.ED25519);
+        Mockito.lenient().when(keyManager.getSigningKeyPair(null, SignatureScheme.ED25519)).thenReturn(edKeyPair);
+
+        chequeSigner = new ChequeSigner(keyManager, "merkle", 50, 256);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chequeSigner.shutdown();
+    }
+
+    private static byte[] payload(int i) {
+        return ("{ \"amount\": " + i + ", \"nonce\": \"n-" + i + "\" }").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Cheque signedCheque(ChequeSignature signature) {
+        Cheque cheque = new Cheque();
+        signature.applyTo(cheque);
+        return cheque;
+    }
+
+    @Test
+    void signAllSharesOneRootSignature() throws Exception {
+        List<byte[]> payloads = List.of(payload(1), payload(2), payload(3), payload(4), payload(5));
+
+        List<ChequeSignature> signatures = chequeSigner.signAll(payloads);
+
+        assertEquals(5, signatures.size());
+        for (int i = 0; i < signatures.size(); i++) {
+            ChequeSignature signature = signatures.get(i);
+            assertArrayEquals(signatures.get(0).getSignature(), signature.getSignature());
+            assertArrayEquals(signatures.get(0).getMerkleRoot(), signature.getMerkleRoot());
+            assertEquals(i, signature.getMerkleLeafIndex());
+            assertTrue(chequeSigner.verify(signedCheque(signature), payloads.get(i)));
+        }
+    }
+
+    @Test
+    void verifyRejectsPayloadNotInBatch() throws Exception {
+        List<ChequeSignature> signatures = chequeSigner.signAll(List.of(payload(1), payload(2), payload(3)));
+
+        Cheque cheque = signedCheque(signatures.get(1));
+
+        assertFalse(chequeSigner.verify(cheque, payload(99)));
+
+        cheque.setMerkleLeafIndex(0);
+        assertFalse(chequeSigner.verify(cheque, payload(2)), "A proof must only verify at its own leaf index");
+    }
+
+    @Test
+    void verifyRejectsForgedRootSignature() throws Exception {
+        List<ChequeSignature> signatures = chequeSigner.signAll(List.of(payload(1), payload(2)));
+
+        Cheque cheque = signedCheque(signatures.get(0));
+        cheque.setSignature(new byte[64]);
+
+        assertFalse(chequeSigner.verify(cheque, payload(1)));
+    }
+
+    @Test
+    void concurrentSignsInOneWindowShareABatch() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ChequeSignature>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                byte[] payload = payload(i);
+                futures.add(callers.submit(() -> chequeSigner.sign(payload)));
+            }
+
+            List<ChequeSignature> signatures = new ArrayList<>();
+            for (Future<ChequeSignature> future : futures) {
+                signatures.add(future.get(5, TimeUnit.SECONDS));
+            }
+
+            for (int i = 0; i < signatures.size(); i++) {
+                assertTrue(chequeSigner.verify(signedCheque(signatures.get(i)), payload(i)));
+            }
+            long distinctRoots = signatures.stream()
+                    .map(signature -> java.util.HexFormat.of().formatHex(signature.getMerkleRoot()))
+                    .distinct()
+                    .count();
+            assertTrue(distinctRoots < signatures.size(), "Cheques signed in one window must share a root");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void singleModeSignsEachPayload() throws Exception {
+        ChequeSigner single = new ChequeSigner(keyManager, "single", 50, 256);
+
+        ChequeSignature signature = single.sign(payload(7));
+
+        assertNull(signature.getMerkleRoot());
+        assertEquals(SignatureScheme.ED25519, signature.getScheme());
+        assertTrue(single.verify(signedCheque(signature), payload(7)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.chequepay;
+
+import com.chequepay.dto.ChequeVerificationResult;
+import com.chequepay.entity.Cheque;
+import com.chequepay.repository.AccountRepository;
+import com.chequepay.repository.ChequeRepository;
+import com.chequepay.repository.UsedNonceRepository;
+import com.chequepay.service.ChequeIntegrity;
+import com.chequepay.service.ChequeSigner;
+import com.chequepay.service.ClearingService;
+import com.chequepay.service.KeyManager;
+import com.chequepay.service.ReplayGuard;
+import com.chequepay.service.VerificationCache;
+import com.chequepay.util.AESUtil;
+import com.chequepay.util.NonceStore;
+import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureScheme;
+import com.chequepay.util.SignatureUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchVerifyServiceTest {
+
+    private ClearingService clearingService;
+
+    @Mock
+    private ChequeRepository chequeRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private KeyManager keyManager;
+
+    @Mock
+    private UsedNonceRepository usedNonceRepository;
+
+    private static final byte[] WRAPPED_KEY = {1, 2, 3};
+
+    private KeyPair rsaKeyPair;
+    private SecretKey aesKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearingService = new ClearingService(chequeRepository, accountRepository, keyManager,
+                new ChequeSigner(keyManager, "single", 20, 256), new ChequeIntegrity(keyManager), new VerificationCache(30_000, 1000),
+                new ReplayGuard(usedNonceRepository, 1000, 0.01, 5000));
+        rsaKeyPair = RSAUtil.generateKeyPair(2048);
+        aesKey = AESUtil.generateAESKey();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clearingService.shutdownVerificationPool();
+    }
+
+    private Cheque issuedCheque(String payee) throws Exception {
+        String nonce = NonceStore.generateNonce();
+        String chequeData = "{ \"amount\": 100, \"payer\": \"bolin0330\", \"payee\": \"" + payee
+                + "\", \"expiry\": \"2030-12-31T23:59\", \"nonce\": \"" + nonce + "\" }";
+
+        return Cheque.builder()
+                .id(UUID.randomUUID())
+                .amount(BigDecimal.valueOf(100))
+                .payerUsername("bolin0330")
+                .payeeUsername(payee)
+                .expiryDate(LocalDateTime.now().plusDays(10))
+                .status("ISSUED")
+                .encryptedData(AESUtil.encrypt(chequeData.getBytes(StandardCharsets.UTF_8), aesKey))
+                .encryptedKey(WRAPPED_KEY)
+                .keyId("key-1")
+                .signature(SignatureUtil.sign(chequeData.getBytes(StandardCharsets.UTF_8), rsaKeyPair.getPrivate(), SignatureScheme.RSA_SHA256))
+                .nonce(nonce)
+                .build();
+    }
+
+    @Test
+    void verifyBatchReportsPerChequeResults() throws Exception {
+        Cheque valid = issuedCheque("one_rakugaki");
+        Cheque otherPayee = issuedCheque("someone_else");
+        Cheque tampered = issuedCheque("one_rakugaki");
+        tampered.setSignature(otherPayee.getSignature());
+        UUID missingId = UUID.randomUUID();
+
+        Mockito.when(chequeRepository.findAllById(any()))
+                .thenReturn(List.of(valid, otherPayee, tampered));
+        Mockito.when(keyManager.resolveDataKey("key-1", WRAPPED_KEY)).thenReturn(aesKey);
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
+
+        List<UUID> ids = List.of(valid.getId(), otherPayee.getId(), tampered.getId(), missingId);
+        List<ChequeVerificationResult> results = clearingService.verifyCheques(ids, "one_rakugaki");
+
+        assertEquals(4, results.size());
+        assertEquals(ids, results.stream().map(ChequeVerificationResult::getChequeId).toList());
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("You are not authorized to settle this cheque.", results.get(1).getMessage());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Invalid cheque signature", results.get(2).getMessage());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals("Cheque not found", results.get(3).getMessage());
+
+        Mockito.verify(chequeRepository, Mockito.times(1)).findAllById(any());
+        Mockito.verify(chequeRepository, Mockito.never()).findById(any());
+    }
+
+    @Test
+    void verifyBatchRejectsOversizedBatch() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> clearingService.verifyCheques(ids, "one_rakugaki"));
+        assertEquals("A batch may contain at most 5000 cheques", ex.getMessage());
+    }
+}
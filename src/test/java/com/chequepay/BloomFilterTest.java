@@ -0,0 +1,35 @@
+package com.chequepay;
+
+import com.chequepay.util.BloomFilter;
+import com.chequepay.util.NonceStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String nonce = NonceStore.generateNonce();
+            filter.put(nonce);
+            added.add(nonce);
+        }
+        assertTrue(added.stream().allMatch(filter::mightContain), "Every added nonce must be reported as present");
+        assertFalse(filter.put(added.get(0)), "Re-adding a nonce must not change the filter");
+        assertTrue(filter.insertions() > 9_800 && filter.insertions() <= 10_000);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(NonceStore.generateNonce())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "False-positive rate should stay near 1%, was " + falsePositives + " in 10000");
+    }
+}
@@ -0,0 +1,48 @@
+package com.chequepay;
+
+import com.chequepay.config.BoundedPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedPasswordEncoderTest {
+
+    @Test
+    void testBoundedPasswordEncoderRejectsWhenSaturated() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(12, 1, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = callers.submit(() -> encoder.encode("first"));
+            Future<String> queued = callers.submit(() -> encoder.encode("second"));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (encoder.queueDepth() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            assertThrows(RejectedExecutionException.class, () -> encoder.matches("third", "$2a$04$unused"),
+                    "A call must be rejected at once while the worker and queue are full");
+            String first = running.get();
+            String second = queued.get();
+            assertTrue(encoder.matches("first", first));
+            assertTrue(encoder.matches("second", second));
+        } finally {
+            callers.shutdown();
+            encoder.shutdown();
+        }
+
+        BoundedPasswordEncoder stronger = new BoundedPasswordEncoder(5, 1, 1);
+        try {
+            assertTrue(stronger.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")),
+                    "Hashes below the current cost should be re-hashed on login");
+            assertEquals(4, BoundedPasswordEncoder.calibrate(0, 4, 10));
+        } finally {
+            stronger.shutdown();
+        }
+    }
+}
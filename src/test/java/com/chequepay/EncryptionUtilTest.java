@@ -1,8 +1,10 @@
 package com.chequepay;
 
 import com.chequepay.util.AESUtil;
+import com.chequepay.util.HmacUtil;
 import com.chequepay.util.NonceStore;
 import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureScheme;
 import com.chequepay.util.SignatureUtil;
 import org.junit.jupiter.api.Test;
 
@@ -28,6 +30,20 @@ public class EncryptionUtilTest {
         assertEquals(originalText, decrypted, "Decrypted text must equal the original text");
     }
 
+    @Test
+    void testAESBytes() throws Exception {
+        byte[] original = "Binary cheque envelope".getBytes();
+        SecretKey aesKey = AESUtil.generateAESKey();
+
+        byte[] encrypted = AESUtil.encrypt(original, aesKey);
+
+        assertEquals(12 + original.length + 16, encrypted.length, "Envelope must be IV || ciphertext || tag");
+        assertArrayEquals(original, AESUtil.decrypt(encrypted, aesKey));
+        assertEquals("Binary cheque envelope",
+                AESUtil.decrypt(java.util.Base64.getEncoder().encodeToString(encrypted), aesKey),
+                "String and byte[] APIs must share the same wire format");
+    }
+
     @Test
     void testRSA() throws Exception {
         KeyPair keyPair = RSAUtil.generateKeyPair(2048);
@@ -78,6 +94,37 @@ public class EncryptionUtilTest {
         assertFalse(shouldFail, "Signature verification should fail for tampered data");
     }
 
+    @Test
+    void testEd25519Signature() throws Exception {
+        KeyPair keyPair = SignatureUtil.generateKeyPair(SignatureScheme.ED25519);
+        String data = "Cheque JSON Data ABC123";
+
+        String signature = SignatureUtil.sign(data, keyPair.getPrivate(), SignatureScheme.ED25519);
+
+        assertTrue(SignatureUtil.verify(data, signature, keyPair.getPublic(), SignatureScheme.ED25519));
+        assertFalse(SignatureUtil.verify("tampered", signature, keyPair.getPublic(), SignatureScheme.ED25519));
+    }
+
+    @Test
+    void testSignatureSchemeDefaultsToRsaForLegacyCheques() {
+        assertEquals(SignatureScheme.RSA_SHA256, SignatureScheme.fromAlgorithm(null));
+        assertEquals(SignatureScheme.ED25519, SignatureScheme.fromAlgorithm("Ed25519"));
+        assertThrows(IllegalArgumentException.class, () -> SignatureScheme.fromAlgorithm("MD5withRSA"));
+    }
+
+    @Test
+    void testHmacWithPooledEngine() throws Exception {
+        String data = "Cheque JSON Data ABC123";
+
+        String first = HmacUtil.hmacSHA256(data, "secret-one");
+        String second = HmacUtil.hmacSHA256(data, "secret-one");
+        String otherKey = HmacUtil.hmacSHA256(data, "secret-two");
+
+        assertEquals(first, second, "A reused HMAC engine must produce the same tag");
+        assertNotEquals(first, otherKey, "HMAC engines must not leak keys between secrets");
+        assertTrue(HmacUtil.verifyHmac(data, "secret-one", first));
+    }
+
     @Test
     void testNonce() {
         String nonce = NonceStore.generateNonce();
@@ -0,0 +1,98 @@
+package com.chequepay;
+
+import com.chequepay.entity.User;
+import com.chequepay.service.CustomUserDetailsService;
+import com.chequepay.service.UserCacheInvalidator;
+import com.chequepay.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtUtilTest {
+
+    @Test
+    void testJwtRejectsSecretsShorterThan256Bits() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> new JwtUtil("dGVzdC1zZWNyZXQ=", 60_000, 60_000, 100));
+        assertTrue(ex.getMessage().contains("at least 256 bits"), ex.getMessage());
+    }
+
+    @Test
+    void testJwtValidatesOnceAndRejectsTampering() {
+        JwtUtil jwtUtil = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 60_000, 60_000, 100);
+        String token = jwtUtil.generateToken("min9yu_k");
+
+        assertEquals("min9yu_k", jwtUtil.validateToken(token).getSubject());
+        assertSame(jwtUtil.validateToken(token), jwtUtil.validateToken(token), "A validated token should be served from the cache");
+        assertTrue(jwtUtil.isTokenValid(token, "min9yu_k"));
+
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 4) + "AAAA";
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtUtil.validateToken(forged));
+
+        JwtUtil expiring = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", -1_000, 60_000, 100);
+        assertThrows(io.jsonwebtoken.ExpiredJwtException.class, () -> expiring.validateToken(expiring.generateToken("min9yu_k")));
+    }
+
+    @Test
+    void testJwtCarriesRoleAndIsRevokedByVersionBump() {
+        JwtUtil jwtUtil = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 60_000, 60_000, 100);
+        String token = jwtUtil.generateToken("min9yu_k", "USER");
+        Claims claims = jwtUtil.validateToken(token);
+
+        assertEquals("USER", claims.get(JwtUtil.ROLE_CLAIM, String.class));
+        assertTrue(jwtUtil.isCurrentVersion(claims));
+
+        jwtUtil.revokeTokensBefore("min9yu_k", 1);
+        assertFalse(jwtUtil.isCurrentVersion(claims), "Tokens issued before a revocation must be rejected");
+        assertFalse(jwtUtil.isTokenValid(token, "min9yu_k"));
+        assertTrue(jwtUtil.isTokenValid(jwtUtil.generateToken("min9yu_k", "USER"), "min9yu_k"));
+
+        // Another node, or this one after a restart, has not seen the revocation yet: newer tokens still pass.
+        JwtUtil otherNode = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 60_000, 60_000, 100);
+        String newer = jwtUtil.generateToken("min9yu_k", "USER", 2);
+        assertTrue(otherNode.isTokenValid(newer, "min9yu_k"));
+        otherNode.revokeTokensBefore("min9yu_k", 2);
+        otherNode.revokeTokensBefore("min9yu_k", 1);
+        assertTrue(otherNode.isTokenValid(newer, "min9yu_k"), "Versions must never move backwards");
+        assertFalse(jwtUtil.isTokenValid(jwtUtil.generateToken("min9yu_k", "USER", 1), "min9yu_k"));
+    }
+
+    @Test
+    void testJwtRevokedByIdUntilExpiry() {
+        JwtUtil jwtUtil = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 60_000, 60_000, 100);
+        String token = jwtUtil.generateToken("min9yu_k", "USER");
+        String other = jwtUtil.generateToken("min9yu_k", "USER");
+        Claims claims = jwtUtil.validateToken(token);
+        assertNotNull(claims.getId());
+
+        jwtUtil.revoke(claims.getId(), claims.getExpiration().toInstant());
+
+        assertTrue(jwtUtil.isRevoked(claims));
+        assertFalse(jwtUtil.isTokenValid(token, "min9yu_k"));
+        assertTrue(jwtUtil.isTokenValid(other, "min9yu_k"), "Revoking one token must leave the user's other sessions alone");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testJwtAcceptsTokensOfAUserRegisteredAgainUnderADeletedName() {
+        JwtUtil jwtUtil = new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 60_000, 60_000, 100);
+        ObjectProvider<JwtUtil> jwtProvider = mock(ObjectProvider.class, CALLS_REAL_METHODS);
+        doReturn(jwtUtil).when(jwtProvider).getIfAvailable();
+        ObjectProvider<CustomUserDetailsService> userDetailsProvider = mock(ObjectProvider.class, CALLS_REAL_METHODS);
+        doReturn(null).when(userDetailsProvider).getIfAvailable();
+        UserCacheInvalidator invalidator = new UserCacheInvalidator(userDetailsProvider, jwtProvider);
+
+        User deleted = User.builder().username("reused").tokenVersion(3).build();
+        invalidator.userRemoved(deleted);
+        assertFalse(jwtUtil.isTokenValid(jwtUtil.generateToken("reused", "USER", 3), "reused"),
+                "Tokens of a deleted user must be rejected");
+
+        invalidator.userCreated(User.builder().username("reused").build());
+        assertTrue(jwtUtil.isTokenValid(jwtUtil.generateToken("reused", "USER", 0), "reused"),
+                "A new user under the same name starts over at version 0");
+    }
+}
@@ -0,0 +1,60 @@
+package com.chequepay;
+
+import com.chequepay.service.KeyManager;
+import com.chequepay.util.AESUtil;
+import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureScheme;
+import com.chequepay.util.SignatureUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyManagerTest {
+
+    @Test
+    void testKeyEnvelope() throws Exception {
+        KeyManager keyManager = new KeyManager("SHA256withRSA", "", "changeit", 0);
+        String keyId = keyManager.getActiveKeyId();
+        byte[] wrappedKey = keyManager.getWrappedDataKey(keyId);
+
+        assertSame(keyManager.getDataKey(keyId), keyManager.resolveDataKey(keyId, wrappedKey),
+                "Known key IDs must be served from the in-memory key map");
+
+        // Cheques from before key IDs wrapped the key's Base64 text, possibly with a generation since rotated out.
+        SecretKey original = AESUtil.generateAESKey();
+        byte[] legacyWrapped = RSAUtil.encrypt(AESUtil.toBase64(original).getBytes(StandardCharsets.US_ASCII),
+                keyManager.getSigningKeyPair(keyId, SignatureScheme.RSA_SHA256).getPublic());
+        keyManager.rotate();
+        keyManager.shutdown();
+
+        SecretKey legacyKey = keyManager.resolveDataKey(null, legacyWrapped);
+        assertArrayEquals(original.getEncoded(), legacyKey.getEncoded(),
+                "Cheques without a key ID must still unwrap through RSA after a rotation");
+    }
+
+    @Test
+    void testKeyRingPersistsAcrossRestarts(@TempDir Path directory) throws Exception {
+        String keystore = directory.resolve("cheque-keys.p12").toString();
+        KeyManager first = new KeyManager("Ed25519", keystore, "test-password", 0);
+        String originalKeyId = first.getActiveKeyId();
+        byte[] signature = SignatureUtil.sign("cheque".getBytes(),
+                first.getSigningKeyPair(originalKeyId, SignatureScheme.ED25519).getPrivate(), SignatureScheme.ED25519);
+
+        String rotatedKeyId = first.rotate();
+        first.shutdown();
+        assertTrue(rotatedKeyId.compareTo(originalKeyId) > 0, "Rotated key IDs must sort after older ones");
+
+        KeyManager restarted = new KeyManager("Ed25519", keystore, "test-password", 0);
+        restarted.shutdown();
+        assertEquals(rotatedKeyId, restarted.getActiveKeyId(), "A restart must keep the rotated key active");
+        assertArrayEquals(first.getDataKey(originalKeyId).getEncoded(), restarted.getDataKey(originalKeyId).getEncoded());
+        assertTrue(SignatureUtil.verify("cheque".getBytes(), signature,
+                        restarted.getSigningKeyPair(originalKeyId, SignatureScheme.ED25519).getPublic(), SignatureScheme.ED25519),
+                "Cheques signed before a rotation must stay verifiable");
+    }
+}
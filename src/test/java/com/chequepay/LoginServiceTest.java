@@ -2,8 +2,14 @@ package com.chequepay;
 
 import com.chequepay.dto.AuthResponse;
 import com.chequepay.dto.LoginRequest;
+import com.chequepay.entity.User;
+import com.chequepay.repository.UserRepository;
 import com.chequepay.service.AuthService;
+import com.chequepay.service.CustomUserDetailsService;
+import com.chequepay.service.TokenRevocationService;
 import com.chequepay.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +21,12 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Optional;
 
 @ExtendWith(MockitoExtension.class)
 public class LoginServiceTest {
@@ -27,6 +39,12 @@ public class LoginServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @Test
     void loginSuccess_returnsToken() {
         LoginRequest request = new LoginRequest();
@@ -37,7 +55,8 @@ public class LoginServiceTest {
         Mockito.when(authenticationManager.authenticate(Mockito.any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(mockAuth);
 
-        Mockito.when(jwtUtil.generateToken("test1"))
+        Mockito.doReturn(List.of(new SimpleGrantedAuthority("ROLE_USER"))).when(mockAuth).getAuthorities();
+        Mockito.when(jwtUtil.generateToken("test1", "USER", 0))
                 .thenReturn("real-jwt-token");
 
         AuthResponse response = authService.login(request);
@@ -78,4 +97,36 @@ public class LoginServiceTest {
 
         Assertions.assertTrue(ex.getMessage().contains("Unexpected error during login"));
     }
+
+    @Test
+    void userDetailsAreCachedUntilEvicted() {
+        User user = User.builder().username("test4").password("$2a$10$hash").role("USER").build();
+        Mockito.when(userRepository.findByUsername("test4")).thenReturn(Optional.of(user));
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository, 60_000, 100);
+
+        UserDetails first = userDetailsService.loadUserByUsername("test4");
+        ((CredentialsContainer) first).eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername("test4");
+
+        Assertions.assertEquals("$2a$10$hash", second.getPassword(), "Erasing a returned copy must not touch the cache");
+        Mockito.verify(userRepository, Mockito.times(1)).findByUsername("test4");
+        Assertions.assertEquals(0.5, userDetailsService.stats().hitRate());
+
+        userDetailsService.evict("test4");
+        userDetailsService.loadUserByUsername("test4");
+        Mockito.verify(userRepository, Mockito.times(2)).findByUsername("test4");
+    }
+
+    @Test
+    void logoutRevokesPresentedToken() {
+        Claims claims = Mockito.mock(Claims.class);
+        Mockito.when(jwtUtil.validateToken("live-token")).thenReturn(claims);
+        Mockito.when(jwtUtil.validateToken("expired-token")).thenThrow(new ExpiredJwtException(null, null, "expired"));
+
+        authService.logout("live-token");
+        authService.logout("expired-token");
+
+        Mockito.verify(tokenRevocationService).revoke(claims);
+        Mockito.verifyNoMoreInteractions(tokenRevocationService);
+    }
 }
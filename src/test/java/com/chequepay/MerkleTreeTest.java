@@ -0,0 +1,31 @@
+package com.chequepay;
+
+import com.chequepay.util.MerkleTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MerkleTreeTest {
+
+    @Test
+    void testMerkleProofs() throws Exception {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            leaves.add(("cheque-" + i).getBytes());
+        }
+
+        MerkleTree tree = MerkleTree.build(leaves);
+
+        for (int i = 0; i < leaves.size(); i++) {
+            assertArrayEquals(tree.getRoot(), MerkleTree.computeRoot(leaves.get(i), i, tree.proof(i)),
+                    "Every leaf must prove back to the root");
+        }
+        assertFalse(Arrays.equals(tree.getRoot(), MerkleTree.computeRoot(leaves.get(0), 1, tree.proof(0))),
+                "A proof must not verify at another leaf index");
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.computeRoot(leaves.get(0), 64, tree.proof(0)));
+    }
+}
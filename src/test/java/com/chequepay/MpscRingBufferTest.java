@@ -0,0 +1,57 @@
+package com.chequepay;
+
+import com.chequepay.util.MpscRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpscRingBufferTest {
+
+    @Test
+    void testMpscRingBufferDeliversEveryElementOnce() throws Exception {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(1000);
+        assertEquals(1024, ring.capacity());
+
+        int producers = 4;
+        int perProducer = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                pool.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!ring.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+            }
+
+            boolean[] seen = new boolean[producers * perProducer];
+            int[] lastFromProducer = new int[producers];
+            Arrays.fill(lastFromProducer, -1);
+            int received = 0;
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (received < seen.length && System.currentTimeMillis() < deadline) {
+                Integer value = ring.poll();
+                if (value == null) {
+                    continue;
+                }
+                assertFalse(seen[value], "Element delivered twice: " + value);
+                seen[value] = true;
+                int producer = value / perProducer;
+                assertTrue(value > lastFromProducer[producer], "Elements of one producer must stay in order");
+                lastFromProducer[producer] = value;
+                received++;
+            }
+            assertEquals(seen.length, received);
+            assertNull(ring.poll());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.chequepay;
+
+import com.chequepay.util.NonceRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NonceRegistryTest {
+
+    @Test
+    void testNonceRegistryMarksOnce() throws Exception {
+        NonceRegistry registry = new NonceRegistry(Duration.ofMinutes(1));
+        Instant expiry = Instant.now().plus(Duration.ofDays(1));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                attempts.add(pool.submit(() -> registry.markIfUnused("shared-nonce", expiry)));
+            }
+            int winners = 0;
+            for (Future<Boolean> attempt : attempts) {
+                winners += attempt.get() ? 1 : 0;
+            }
+            assertEquals(1, winners, "Exactly one concurrent caller may claim a nonce");
+        } finally {
+            pool.shutdown();
+        }
+
+        registry.release("shared-nonce");
+        assertTrue(registry.markIfUnused("shared-nonce", expiry), "A released nonce can be claimed again");
+    }
+
+    @Test
+    void testNonceRegistryEvictsExpired() throws Exception {
+        NonceRegistry registry = new NonceRegistry(Duration.ofMillis(10));
+        for (int i = 0; i < 100; i++) {
+            registry.markIfUnused("expired-" + i, Instant.now());
+        }
+        registry.markIfUnused("live", Instant.now().plus(Duration.ofDays(1)));
+        Thread.sleep(30);
+
+        registry.markIfUnused("trigger", Instant.now().plus(Duration.ofDays(1)));
+
+        assertFalse(registry.contains("expired-0"), "Nonces of expired cheques must be evicted");
+        assertTrue(registry.contains("live"));
+        assertEquals(2, registry.size());
+        assertEquals(100, registry.stats().evictedTotal());
+    }
+
+    @Test
+    void testNonceRegistryLeavesNothingBehindWhenMarkingRacesASweep() throws Exception {
+        NonceRegistry registry = new NonceRegistry(Duration.ofMillis(1));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        registry.markIfUnused("racing-" + thread + "-" + i, Instant.now());
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Thread.sleep(5);
+
+        registry.markIfUnused("trigger", Instant.now().plus(Duration.ofDays(1)));
+
+        assertEquals(1, registry.size(), "Every expired nonce must be evicted, however its mark interleaved");
+    }
+}
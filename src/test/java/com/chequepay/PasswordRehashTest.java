@@ -0,0 +1,68 @@
+package com.chequepay;
+
+import com.chequepay.config.BoundedPasswordEncoder;
+import com.chequepay.entity.User;
+import com.chequepay.repository.UserRepository;
+import com.chequepay.service.CustomUserDetailsService;
+import com.chequepay.service.UserCacheInvalidator;
+import com.chequepay.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({JwtUtil.class, CustomUserDetailsService.class, UserCacheInvalidator.class})
+public class PasswordRehashTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void rehashOnLoginKeepsOutstandingTokensValid() {
+        userRepository.save(User.builder()
+                .username("rehash1")
+                .password(new BCryptPasswordEncoder(4).encode("Password1"))
+                .email("rehash1@example.com")
+                .role("USER")
+                .realname("Re Hash")
+                .phoneNumber("0911111111")
+                .build());
+        entityManager.flush();
+        String earlier = jwtUtil.generateToken("rehash1", "USER", 0);
+
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 1);
+        try {
+            DaoAuthenticationProvider provider = new DaoAuthenticationProvider(encoder);
+            provider.setUserDetailsService(userDetailsService);
+            provider.setUserDetailsPasswordService(userDetailsService);
+            provider.authenticate(new UsernamePasswordAuthenticationToken("rehash1", "Password1"));
+        } finally {
+            encoder.shutdown();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        User stored = userRepository.findByUsername("rehash1").orElseThrow();
+        assertTrue(stored.getPassword().startsWith("$2a$05$"), "The login should have re-hashed at the current cost");
+        assertEquals(0, stored.getTokenVersion());
+        assertTrue(jwtUtil.isTokenValid(earlier, "rehash1"), "A re-hash must not revoke the user's sessions");
+    }
+}
@@ -5,6 +5,7 @@ import com.chequepay.entity.User;
 import com.chequepay.repository.AccountRepository;
 import com.chequepay.repository.UserRepository;
 import com.chequepay.service.AuthService;
+import com.chequepay.service.TokenRevocationService;
 import com.chequepay.util.JwtUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -174,8 +175,9 @@ class RegisterControllerTest {
                 mockRepo,
                 accountRepository,
                 new BCryptPasswordEncoder(),
-                new JwtUtil(),
-                Mockito.mock(AuthenticationManager.class)
+                new JwtUtil("dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQ=", 9000000, 60000, 100),
+                Mockito.mock(AuthenticationManager.class),
+                Mockito.mock(TokenRevocationService.class)
         );
 
         AuthController controller = new AuthController(authService, mockRepo);
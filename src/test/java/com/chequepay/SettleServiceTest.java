@@ -4,19 +4,29 @@ import com.chequepay.entity.Account;
 import com.chequepay.entity.Cheque;
 import com.chequepay.repository.AccountRepository;
 import com.chequepay.repository.ChequeRepository;
+import com.chequepay.repository.UsedNonceRepository;
+import com.chequepay.service.ChequeIntegrity;
+import com.chequepay.service.ChequeSigner;
 import com.chequepay.service.ClearingService;
 import com.chequepay.service.KeyManager;
+import com.chequepay.service.ReplayGuard;
+import com.chequepay.service.VerificationCache;
 import com.chequepay.util.AESUtil;
 import com.chequepay.util.NonceStore;
 import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureScheme;
 import com.chequepay.util.SignatureUtil;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.crypto.SecretKey;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -27,7 +37,6 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class SettleServiceTest {
 
-    @InjectMocks
     private ClearingService clearingService;
 
     @Mock
@@ -39,11 +48,17 @@ public class SettleServiceTest {
     @Mock
     private KeyManager keyManager;
 
+    @Mock
+    private UsedNonceRepository usedNonceRepository;
+
     private Cheque cheque;
     private UUID chequeId;
 
     @BeforeEach
     void setUp() throws Exception {
+        clearingService = new ClearingService(chequeRepository, accountRepository, keyManager,
+                new ChequeSigner(keyManager, "single", 20, 256), new ChequeIntegrity(keyManager), new VerificationCache(30_000, 1000),
+                new ReplayGuard(usedNonceRepository, 1000, 0.01, 5000));
         chequeId = UUID.randomUUID();
         KeyPair rsaKeyPair = RSAUtil.generateKeyPair(2048);
 
@@ -52,9 +67,10 @@ public class SettleServiceTest {
 
         String chequeData = "{ \"amount\": 3000, \"payer\": \"min9yu_k\", \"payee\": \"larissalambert\", \"expiry\": \"2030-12-31T23:59\", \"nonce\": \""
                 + nonce + "\" }";
-        String encryptedData = AESUtil.encrypt(chequeData, aesKey);
-        String encryptedKey = RSAUtil.encrypt(AESUtil.toBase64(aesKey), rsaKeyPair.getPublic());
-        String signature = SignatureUtil.sign(chequeData, rsaKeyPair.getPrivate());
+        byte[] payload = chequeData.getBytes(StandardCharsets.UTF_8);
+        byte[] encryptedData = AESUtil.encrypt(payload, aesKey);
+        byte[] encryptedKey = RSAUtil.encrypt(aesKey.getEncoded(), rsaKeyPair.getPublic());
+        byte[] signature = SignatureUtil.sign(payload, rsaKeyPair.getPrivate(), SignatureScheme.RSA_SHA256);
 
         cheque = Cheque.builder()
                 .id(chequeId)
@@ -70,7 +86,8 @@ public class SettleServiceTest {
                 .build();
 
         lenient().when(chequeRepository.findById(chequeId)).thenReturn(Optional.of(cheque));
-        lenient().when(keyManager.getRsaKeyPair()).thenReturn(rsaKeyPair);
+        lenient().when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
+        lenient().when(keyManager.resolveDataKey(null, encryptedKey)).thenReturn(aesKey);
     }
 
     @Test
@@ -88,6 +105,25 @@ public class SettleServiceTest {
         assertTrue(NonceStore.hasBeenUsed(cheque.getNonce()));
     }
 
+    @Test
+    void settleAfterVerifyReusesVerification() throws Exception {
+        Account payer = Account.builder().username("min9yu_k").realname("Mingyu Kim").balance(BigDecimal.valueOf(5000)).build();
+        Account payee = Account.builder().username("larissalambert").realname("Larissa Lambert").balance(BigDecimal.valueOf(1000)).build();
+        Mockito.when(accountRepository.findByUsername("min9yu_k")).thenReturn(Optional.of(payer));
+        Mockito.when(accountRepository.findByUsername("larissalambert")).thenReturn(Optional.of(payee));
+
+        clearingService.verifyCheque(chequeId, "larissalambert");
+        clearingService.settleCheque(chequeId, "larissalambert");
+
+        Mockito.verify(keyManager, Mockito.times(1)).resolveDataKey(null, cheque.getEncryptedKey());
+        Mockito.verify(chequeRepository, Mockito.times(2)).findById(chequeId);
+        assertEquals("CLEARED", cheque.getStatus());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> clearingService.settleCheque(chequeId, "larissalambert"));
+        assertEquals("Cheque is not in ISSUED status", ex.getMessage());
+    }
+
     @Test
     void settleMissingPayer() {
         Mockito.when(accountRepository.findByUsername("min9yu_k")).thenReturn(Optional.empty());
@@ -119,6 +155,47 @@ public class SettleServiceTest {
                 () -> clearingService.settleCheque(chequeId, "larissalambert"));
         assertInstanceOf(IllegalStateException.class, ex.getCause());
         assertEquals("Insufficient balance", ex.getCause().getMessage());
+        assertFalse(NonceStore.hasBeenUsed(cheque.getNonce()), "A rejected settle must not claim the nonce");
+        Mockito.verify(usedNonceRepository, Mockito.never()).insertNonce(any(), any(), any(), any());
+    }
+
+    @Test
+    void settleRejectsNonceClaimedByAnotherNode() {
+        Account payer = Account.builder().username("min9yu_k").realname("Mingyu Kim").balance(BigDecimal.valueOf(5000)).build();
+        Account payee = Account.builder().username("larissalambert").realname("Larissa Lambert").balance(BigDecimal.valueOf(1000)).build();
+        Mockito.when(accountRepository.findByUsername("min9yu_k")).thenReturn(Optional.of(payer));
+        Mockito.when(accountRepository.findByUsername("larissalambert")).thenReturn(Optional.of(payee));
+        Mockito.doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(usedNonceRepository).insertNonce(eq(cheque.getNonce()), eq(chequeId), any(), any());
+
+        SecurityException ex = assertThrows(SecurityException.class,
+                () -> clearingService.settleCheque(chequeId, "larissalambert"));
+        assertEquals("Cheque nonce has already been used", ex.getMessage());
+        assertEquals("ISSUED", cheque.getStatus());
+        assertEquals(BigDecimal.valueOf(5000), payer.getBalance());
+        Mockito.verify(accountRepository, Mockito.never()).save(any());
+    }
+
+    @Test
+    void failedSettleRollsBackTheNonceClaim() {
+        Account payer = Account.builder().username("min9yu_k").realname("Mingyu Kim").balance(BigDecimal.valueOf(5000)).build();
+        Account payee = Account.builder().username("larissalambert").realname("Larissa Lambert").balance(BigDecimal.valueOf(1000)).build();
+        Mockito.when(accountRepository.findByUsername("min9yu_k")).thenReturn(Optional.of(payer));
+        Mockito.when(accountRepository.findByUsername("larissalambert")).thenReturn(Optional.of(payee));
+        Mockito.when(accountRepository.save(payee)).thenThrow(new IllegalStateException("connection lost"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(RuntimeException.class, () -> clearingService.settleCheque(chequeId, "larissalambert"));
+            assertTrue(NonceStore.hasBeenUsed(cheque.getNonce()), "The claim stands until the transaction ends");
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(NonceStore.hasBeenUsed(cheque.getNonce()), "A rolled back settle must forget the nonce");
+        Mockito.verify(usedNonceRepository, Mockito.never()).deleteById(any());
     }
 
     @Test
@@ -3,9 +3,14 @@ package com.chequepay;
 import com.chequepay.entity.Cheque;
 import com.chequepay.repository.ChequeRepository;
 import com.chequepay.service.ChequeService;
+import com.chequepay.service.ChequeIntegrity;
+import com.chequepay.service.ChequeSignature;
+import com.chequepay.service.ChequeSigner;
+import com.chequepay.service.ChequeSigningPipeline;
 import com.chequepay.service.KeyManager;
+import com.chequepay.service.VerificationCache;
 import com.chequepay.util.AESUtil;
-import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureScheme;
 import com.chequepay.dto.ChequeSplitRequest;
 import com.chequepay.dto.ChequeResponse;
 
@@ -31,13 +36,24 @@ public class SplitServiceTest {
     @Mock
     private KeyManager keyManager;
 
-    @InjectMocks
+    @Mock
+    private ChequeSigner chequeSigner;
+
+    @Mock
+    private ChequeIntegrity chequeIntegrity;
+
     private ChequeService chequeService;
 
+    private static final byte[] WRAPPED_KEY = {1, 2, 3};
+
     private Cheque parentCheque;
 
     @BeforeEach
     void setup() {
+        ChequeSigningPipeline signingPipeline =
+                new ChequeSigningPipeline(chequeRepository, keyManager, chequeSigner, chequeIntegrity, null, "sync", 1, 1, 1);
+        chequeService = new ChequeService(null, chequeRepository, null, signingPipeline, new VerificationCache(30_000, 1000));
+
         parentCheque = Cheque.builder()
                 .id(UUID.randomUUID())
                 .amount(new BigDecimal("1000"))
@@ -57,8 +73,15 @@ public class SplitServiceTest {
 
     @Test
     void splitSuccess() throws Exception {
-        when(keyManager.getAesKey()).thenReturn(AESUtil.generateAESKey());
-        when(keyManager.getRsaKeyPair()).thenReturn(RSAUtil.generateKeyPair(2048));
+        when(keyManager.getActiveKeyId()).thenReturn("key-1");
+        when(keyManager.getDataKey("key-1")).thenReturn(AESUtil.generateAESKey());
+        when(keyManager.getWrappedDataKey("key-1")).thenReturn(WRAPPED_KEY);
+        when(chequeSigner.signAll(anyList())).thenAnswer(invocation -> {
+            List<byte[]> payloads = invocation.getArgument(0);
+            return payloads.stream()
+                    .map(payload -> ChequeSignature.single(SignatureScheme.ED25519, "key-1", new byte[64]))
+                    .toList();
+        });
 
         when(chequeRepository.save(any(Cheque.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
@@ -94,6 +117,9 @@ public class SplitServiceTest {
                 .toList();
         assertEquals(3, children.size());
         children.forEach(c -> assertEquals(parentCheque.getId(), c.getParentChequeId()));
+        children.forEach(c -> assertEquals("key-1", c.getKeyId()));
+        children.forEach(c -> assertEquals("Ed25519", c.getSignatureAlgorithm()));
+        children.forEach(c -> assertArrayEquals(WRAPPED_KEY, c.getEncryptedKey()));
     }
 
     @Test
@@ -142,4 +168,18 @@ public class SplitServiceTest {
 
         verify(chequeRepository, never()).save(any());
     }
+
+    @Test
+    void updateStatusLeavesChequesAwaitingSignatureAlone() {
+        parentCheque.setStatus(ChequeSigningPipeline.PENDING_SIGNATURE);
+
+        assertThrows(IllegalStateException.class,
+                () -> chequeService.updateStatus(parentCheque.getId(), "CANCELLED"));
+
+        parentCheque.setStatus("ISSUED");
+        assertThrows(IllegalStateException.class,
+                () -> chequeService.updateStatus(parentCheque.getId(), ChequeSigningPipeline.PENDING_SIGNATURE));
+
+        verify(chequeRepository, never()).save(any());
+    }
 }
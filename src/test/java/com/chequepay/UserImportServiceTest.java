@@ -0,0 +1,119 @@
+package com.chequepay;
+
+import com.chequepay.dto.UserImportReport;
+import com.chequepay.entity.Account;
+import com.chequepay.entity.User;
+import com.chequepay.repository.AccountRepository;
+import com.chequepay.repository.UserRepository;
+import com.chequepay.service.UserImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new UserImportService(userRepository, accountRepository, entityManager, new BCryptPasswordEncoder(4),
+                transactionManager, new ObjectMapper(), 2, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCsvReportsEveryRejectedRow() throws Exception {
+        Mockito.when(userRepository.findExistingUsernames(anyCollection()))
+                .thenAnswer(invocation -> ((List<String>) invocation.getArgument(0)).contains("taken") ? Set.of("taken") : Set.of());
+        Mockito.when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+
+        String csv = """
+                username,email,password,realname,phoneNumber
+                alice,alice@example.com,Password1,Alice Smith,0911111111
+                "bob",bob@example.com,"Pass,word2",Bob Jones,0922222222
+                alice,other@example.com,Password3,Alice Again,0933333333
+                taken,taken@example.com,Password4,Taken Name,0944444444
+                carol,carol@example.com,Password5,Carol 99,0955555555
+                dave,dave@example.com,Password6,Dave Brown,0966666666
+                """;
+
+        UserImportReport report = importService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV);
+
+        assertEquals(6, report.getTotal());
+        assertEquals(3, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of(4, 5, 6), report.getErrors().stream().map(UserImportReport.RowError::getLine).sorted().toList());
+        assertEquals("Duplicate username in file", report.getErrors().stream()
+                .filter(error -> error.getLine() == 4).findFirst().orElseThrow().getMessage());
+
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(userRepository, Mockito.times(2)).saveAll(users.capture());
+        List<User> saved = users.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(List.of("alice", "bob", "dave"), saved.stream().map(User::getUsername).toList());
+        assertTrue(new BCryptPasswordEncoder(4).matches("Pass,word2", saved.get(1).getPassword()));
+        Mockito.verify(accountRepository, Mockito.times(2)).saveAll(any());
+        Mockito.verify(userRepository, Mockito.never()).existsByUsername(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importNdjsonCreatesAccountsWithInitialBalance() throws Exception {
+        Mockito.when(userRepository.findExistingUsernames(anyCollection())).thenReturn(Set.of());
+        Mockito.when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+
+        String ndjson = """
+                {"username":"erin","email":"erin@example.com","password":"Password1","realname":"Erin Lee","phoneNumber":"0977777777"}
+                not json
+                """;
+
+        UserImportReport report = importService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.NDJSON);
+
+        assertEquals(1, report.getImported());
+        assertEquals("Malformed JSON row", report.getErrors().get(0).getMessage());
+        ArgumentCaptor<List<Account>> accounts = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(accountRepository).saveAll(accounts.capture());
+        assertEquals(0, accounts.getValue().get(0).getBalance().compareTo(BigDecimal.valueOf(5000)));
+        Mockito.verify(entityManager).flush();
+        Mockito.verify(entityManager).detach(accounts.getValue().get(0));
+    }
+
+    @Test
+    void importCsvRejectsMissingColumns() {
+        String csv = "username,email\nalice,alice@example.com\n";
+        assertThrows(IllegalArgumentException.class, () -> importService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.Format.CSV));
+    }
+}
@@ -0,0 +1,27 @@
+package com.chequepay;
+
+import com.chequepay.util.UuidV7;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidV7Test {
+
+    @Test
+    void testUuidV7IsTimeOrdered() {
+        long before = System.currentTimeMillis();
+        UUID previous = UuidV7.generate();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = UuidV7.generate();
+            assertEquals(7, next.version());
+            assertEquals(2, next.variant());
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) < 0,
+                    "IDs from one thread must be strictly increasing");
+            previous = next;
+        }
+        long timestamp = UuidV7.timestamp(previous);
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 10);
+    }
+}
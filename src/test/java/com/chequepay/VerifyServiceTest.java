@@ -1,13 +1,22 @@
 package com.chequepay;
 
 import com.chequepay.entity.Cheque;
+import com.chequepay.repository.AccountRepository;
 import com.chequepay.repository.ChequeRepository;
+import com.chequepay.repository.UsedNonceRepository;
+import com.chequepay.service.ChequeSignature;
+import com.chequepay.service.ChequeIntegrity;
+import com.chequepay.service.ChequeSigner;
 import com.chequepay.service.ClearingService;
 import com.chequepay.service.KeyManager;
+import com.chequepay.service.ReplayGuard;
+import com.chequepay.service.VerificationCache;
 import com.chequepay.util.AESUtil;
+import com.chequepay.util.HmacUtil;
 import com.chequepay.util.NonceStore;
 import com.chequepay.util.RSAUtil;
 
+import com.chequepay.util.SignatureScheme;
 import com.chequepay.util.SignatureUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +26,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.crypto.SecretKey;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -26,33 +36,43 @@ import static org.junit.jupiter.api.Assertions.*;
 @ExtendWith(MockitoExtension.class)
 public class VerifyServiceTest {
 
-    @InjectMocks
     private ClearingService clearingService;
 
     @Mock
     private ChequeRepository chequeRepository;
 
+    @Mock
+    private AccountRepository accountRepository;
+
     @Mock
     private KeyManager keyManager;
 
+    @Mock
+    private UsedNonceRepository usedNonceRepository;
+
     private Cheque cheque;
     private UUID chequeId;
     private KeyPair rsaKeyPair;
+    private SecretKey aesKey;
 
     @BeforeEach
     void setUp() throws Exception {
+        clearingService = new ClearingService(chequeRepository, accountRepository, keyManager,
+                new ChequeSigner(keyManager, "single", 20, 256), new ChequeIntegrity(keyManager), new VerificationCache(30_000, 1000),
+                new ReplayGuard(usedNonceRepository, 1000, 0.01, 5000));
         chequeId = UUID.randomUUID();
 
         rsaKeyPair = RSAUtil.generateKeyPair(2048);
-        SecretKey aesKey = AESUtil.generateAESKey();
+        aesKey = AESUtil.generateAESKey();
         String nonce = NonceStore.generateNonce();
 
         String chequeData = "{ \"amount\": 2000, \"payer\": \"bolin0330\", \"payee\": \"one_rakugaki\n\", \"expiry\": \"2030-12-31T23:59\", \"nonce\": \""
                 + nonce + "\" }";
 
-        String encryptedData = AESUtil.encrypt(chequeData, aesKey);
-        String encryptedKey = RSAUtil.encrypt(AESUtil.toBase64(aesKey), rsaKeyPair.getPublic());
-        String signature = SignatureUtil.sign(chequeData, rsaKeyPair.getPrivate());
+        byte[] payload = chequeData.getBytes(StandardCharsets.UTF_8);
+        byte[] encryptedData = AESUtil.encrypt(payload, aesKey);
+        byte[] encryptedKey = RSAUtil.encrypt(aesKey.getEncoded(), rsaKeyPair.getPublic());
+        byte[] signature = SignatureUtil.sign(payload, rsaKeyPair.getPrivate(), SignatureScheme.RSA_SHA256);
 
         cheque = Cheque.builder()
                 .id(chequeId)
@@ -68,11 +88,77 @@ public class VerifyServiceTest {
                 .build();
 
         Mockito.when(chequeRepository.findById(chequeId)).thenReturn(Optional.of(cheque));
+        Mockito.lenient().when(keyManager.resolveDataKey(null, encryptedKey)).thenReturn(aesKey);
     }
 
     @Test
     void verifySuccess() {
-        Mockito.when(keyManager.getRsaKeyPair()).thenReturn(rsaKeyPair);
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
+
+        assertDoesNotThrow(() -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+    }
+
+    @Test
+    void verifyEd25519Success() throws Exception {
+        KeyPair edKeyPair = SignatureUtil.generateKeyPair(SignatureScheme.ED25519);
+        byte[] chequeData = AESUtil.decrypt(cheque.getEncryptedData(), aesKey);
+        cheque.setSignature(SignatureUtil.sign(chequeData, edKeyPair.getPrivate(), SignatureScheme.ED25519));
+        cheque.setSignatureAlgorithm(SignatureScheme.ED25519.getAlgorithm());
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.ED25519)).thenReturn(edKeyPair);
+
+        assertDoesNotThrow(() -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+    }
+
+    @Test
+    void verifyMerkleBatchSuccess() throws Exception {
+        Mockito.when(keyManager.getSignatureScheme()).thenReturn(SignatureScheme.RSA_SHA256);
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
+        byte[] chequeData = AESUtil.decrypt(cheque.getEncryptedData(), aesKey);
+
+        ChequeSigner merkleSigner = new ChequeSigner(keyManager, "merkle", 20, 256);
+        try {
+            List<ChequeSignature> signatures = merkleSigner.signAll(List.of("other cheque".getBytes(), chequeData));
+            signatures.get(1).applyTo(cheque);
+        } finally {
+            merkleSigner.shutdown();
+        }
+
+        assertDoesNotThrow(() -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+
+        cheque.setMerkleLeafIndex(0);
+        SecurityException ex = assertThrows(SecurityException.class,
+                () -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+        assertEquals("Invalid cheque signature", ex.getMessage());
+    }
+
+    @Test
+    void verifyIntegrityTagSkipsSignature() throws Exception {
+        SecretKey integrityKey = HmacUtil.deriveKey(aesKey, "integrity");
+        Mockito.when(keyManager.getIntegrityKey("key-1")).thenReturn(integrityKey);
+        cheque.setKeyId("key-1");
+        cheque.setIntegrityTag(new ChequeIntegrity(keyManager).tag(cheque));
+
+        assertDoesNotThrow(() -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+        Mockito.verify(keyManager, Mockito.never()).resolveDataKey(Mockito.any(), Mockito.any());
+        Mockito.verify(keyManager, Mockito.never()).getSigningKeyPair(Mockito.any(), Mockito.any());
+
+        cheque.setAmount(BigDecimal.valueOf(20000));
+        SecurityException ex = assertThrows(SecurityException.class,
+                () -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
+        assertEquals("Cheque integrity check failed", ex.getMessage());
+    }
+
+    @Test
+    void verifyIntegrityTagAfterAFailedTagOnTheSameThread() throws Exception {
+        SecretKey integrityKey = HmacUtil.deriveKey(aesKey, "integrity");
+        Mockito.when(keyManager.getIntegrityKey("key-1")).thenReturn(integrityKey);
+        cheque.setKeyId("key-1");
+        ChequeIntegrity integrity = new ChequeIntegrity(keyManager);
+        cheque.setIntegrityTag(integrity.tag(cheque));
+
+        // A malformed row fails after its nonce has been fed into this thread's cached Mac.
+        Cheque malformed = Cheque.builder().keyId("key-1").nonce("malformed-nonce").build();
+        assertThrows(NullPointerException.class, () -> integrity.tag(malformed));
 
         assertDoesNotThrow(() -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
     }
@@ -115,7 +201,7 @@ public class VerifyServiceTest {
 
     @Test
     void verifyNonceAlreadyUsed() {
-        Mockito.when(keyManager.getRsaKeyPair()).thenReturn(rsaKeyPair);
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
         NonceStore.markAsUsed(cheque.getNonce());
 
         SecurityException ex = assertThrows(SecurityException.class,
@@ -125,11 +211,11 @@ public class VerifyServiceTest {
 
     @Test
     void verifyInvalidSignature() {
-        Mockito.when(keyManager.getRsaKeyPair()).thenReturn(rsaKeyPair);
+        Mockito.when(keyManager.getSigningKeyPair(null, SignatureScheme.RSA_SHA256)).thenReturn(rsaKeyPair);
 
         byte[] fakeSig = new byte[256];
         new java.security.SecureRandom().nextBytes(fakeSig);
-        cheque.setSignature(Base64.getEncoder().encodeToString(fakeSig));
+        cheque.setSignature(fakeSig);
 
         SecurityException ex = assertThrows(SecurityException.class,
                 () -> clearingService.verifyCheque(chequeId, "one_rakugaki"));
@@ -0,0 +1,108 @@
+package com.chequepay.benchmark;
+
+import com.chequepay.util.AESUtil;
+import com.chequepay.util.HmacUtil;
+import com.chequepay.util.RSAUtil;
+import com.chequepay.util.SignatureUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the crypto utilities routed through {@code CryptoEngine} against the previous
+ * "new engine per call" implementation.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.chequepay.benchmark.CryptoEngineBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoEngineBenchmark {
+
+    private static final String CHEQUE_DATA =
+            "{ \"amount\": 2000, \"payer\": \"bolin0330\", \"payee\": \"one_rakugaki\", "
+                    + "\"expiry\": \"2030-12-31T23:59\", \"nonce\": \"5f0c1c2e-8c55-4f0e-9a53-52d1d1f0f7a1\" }";
+    private static final String HMAC_SECRET = "benchmark-hmac-secret";
+
+    private SecretKey aesKey;
+    private KeyPair rsaKeyPair;
+    private String encryptedData;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        aesKey = AESUtil.generateAESKey();
+        rsaKeyPair = RSAUtil.generateKeyPair(2048);
+        encryptedData = AESUtil.encrypt(CHEQUE_DATA, aesKey);
+        signature = SignatureUtil.sign(CHEQUE_DATA, rsaKeyPair.getPrivate());
+    }
+
+    @Benchmark
+    public String aesEncryptBaseline() throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, aesKey, new GCMParameterSpec(128, iv));
+        byte[] cipherText = cipher.doFinal(CHEQUE_DATA.getBytes());
+        byte[] encrypted = new byte[iv.length + cipherText.length];
+        System.arraycopy(iv, 0, encrypted, 0, iv.length);
+        System.arraycopy(cipherText, 0, encrypted, iv.length, cipherText.length);
+        return Base64.getEncoder().encodeToString(encrypted);
+    }
+
+    @Benchmark
+    public String aesEncryptEngine() throws Exception {
+        return AESUtil.encrypt(CHEQUE_DATA, aesKey);
+    }
+
+    @Benchmark
+    public String aesDecryptEngine() throws Exception {
+        return AESUtil.decrypt(encryptedData, aesKey);
+    }
+
+    @Benchmark
+    public boolean rsaVerifyBaseline() throws Exception {
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(rsaKeyPair.getPublic());
+        verifier.update(CHEQUE_DATA.getBytes());
+        return verifier.verify(Base64.getDecoder().decode(signature));
+    }
+
+    @Benchmark
+    public boolean rsaVerifyEngine() throws Exception {
+        return SignatureUtil.verify(CHEQUE_DATA, signature, rsaKeyPair.getPublic());
+    }
+
+    @Benchmark
+    public String hmacBaseline() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(HMAC_SECRET.getBytes(), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(CHEQUE_DATA.getBytes()));
+    }
+
+    @Benchmark
+    public String hmacEngine() throws Exception {
+        return HmacUtil.hmacSHA256(CHEQUE_DATA, HMAC_SECRET);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CryptoEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.chequepay.benchmark;
+
+import com.chequepay.audit.MaskingUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link MaskingUtil} against the previous four-{@code replaceAll} implementation on
+ * audit details of the shapes the application actually records.
+ * <p>
+ * Run with {@code mvn test-compile} followed by
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.chequepay.benchmark.MaskingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class MaskingBenchmark {
+
+    @Param({"login", "qrCode", "envelope", "clean"})
+    public String payload;
+
+    private String details;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        details = switch (payload) {
+            case "login" -> "AuthController.login(..) -> { \"username\": \"bolin0330\", \"password\": \"Secr3tPass\", "
+                    + "\"email\": \"bolin@example.com\", \"phoneNumber\": \"0912345678\" }";
+            case "qrCode" -> "QRCodeController.generate(..) -> { \"chequeId\": \"0190f3a2-6c1e-7b3d-9f00-2a4c1d8e5b77\", "
+                    + "\"qrImage\": \"" + base64(random, 48 * 1024) + "\", \"encryptedKey\": \"" + base64(random, 256) + "\" }";
+            case "envelope" -> "IssueController.issue(..) -> { \"amount\": 2000, \"payer\": \"bolin0330\", "
+                    + "\"payee\": \"one_rakugaki\", \"encryptedData\": \"" + base64(random, 4 * 1024) + "\", "
+                    + "\"encryptedKey\": \"" + base64(random, 256) + "\", \"signature\": \"" + base64(random, 256) + "\" }";
+            default -> "ChequeController.status(..) -> { \"chequeId\": \"0190f3a2-6c1e-7b3d-9f00-2a4c1d8e5b77\", "
+                    + "\"status\": \"SETTLED\", \"qrImage\": \"" + base64(random, 16 * 1024) + "\" }";
+        };
+    }
+
+    @Benchmark
+    public String regexBaseline() {
+        return details
+                .replaceAll("(?i)\"password\"\\s*:\\s*\".*?\"", "\"password\":\"***\"")
+                .replaceAll("(?i)\"email\"\\s*:\\s*\".*?\"", "\"email\":\"***\"")
+                .replaceAll("(?i)\"phoneNumber\"\\s*:\\s*\".*?\"", "\"phoneNumber\":\"***\"")
+                .replaceAll("(?i)\"encryptedKey\"\\s*:\\s*\".*?\"", "\"encryptedKey\":\"***\"");
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return MaskingUtil.maskSensitive(details);
+    }
+
+    private static String base64(Random random, int bytes) {
+        byte[] data = new byte[bytes];
+        random.nextBytes(data);
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MaskingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}